@@ -0,0 +1,70 @@
+package de.jlo.talendcomp.oracle.merge.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Embedded H2 database in Oracle compatibility mode as stand-in for the Oracle data dictionary.
+ * The tables are synthetic and created with a given number of columns.
+ * @author jan.lolling@gmail.com
+ *
+ */
+public final class BenchmarkDatabase {
+	
+	private static final String[] KEYWORD_COLUMNS = {"SIZE", "COMMENT", "LABEL", "VALUE"};
+	
+	private BenchmarkDatabase() {}
+	
+	public static Connection connect(String name) throws SQLException {
+		return DriverManager.getConnection("jdbc:h2:mem:" + name + ";MODE=Oracle;DB_CLOSE_DELAY=-1", "sa", "");
+	}
+	
+	public static String getTableName(int countColumns) {
+		return "BENCH_T" + countColumns;
+	}
+	
+	public static String getColumnName(int index) {
+		if (index < KEYWORD_COLUMNS.length) {
+			return KEYWORD_COLUMNS[index];
+		}
+		return "COL_" + index;
+	}
+	
+	/**
+	 * Creates a target table with a 2 column primary key and countColumns further columns
+	 * and a source table with the same structure
+	 * @param conn
+	 * @param countColumns
+	 * @throws SQLException
+	 */
+	public static void createTables(Connection conn, int countColumns) throws SQLException {
+		String tableName = getTableName(countColumns);
+		StringBuilder sb = new StringBuilder();
+		sb.append("(ID1 NUMBER(19) not null, ID2 VARCHAR2(32) not null");
+		for (int i = 0; i < countColumns; i++) {
+			sb.append(", \"");
+			sb.append(getColumnName(i));
+			sb.append("\" ");
+			switch (i % 4) {
+			case 0: sb.append("VARCHAR2(100)"); break;
+			case 1: sb.append("NUMBER(12,2)"); break;
+			case 2: sb.append("DATE"); break;
+			default: sb.append("TIMESTAMP"); break;
+			}
+		}
+		sb.append(", primary key (ID1, ID2))");
+		Statement stat = conn.createStatement();
+		try {
+			stat.execute("drop table if exists " + tableName);
+			stat.execute("drop table if exists S_" + tableName);
+			stat.execute("create table " + tableName + " " + sb.toString());
+			stat.execute("create table S_" + tableName + " " + sb.toString());
+			stat.execute("create index IX_" + tableName + " on " + tableName + " (\"" + getColumnName(0) + "\")");
+		} finally {
+			stat.close();
+		}
+	}
+
+}
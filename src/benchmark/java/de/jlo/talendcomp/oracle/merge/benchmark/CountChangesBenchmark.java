@@ -0,0 +1,90 @@
+package de.jlo.talendcomp.oracle.merge.benchmark;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.jlo.talendcomp.oracle.merge.OracleMerge;
+
+/**
+ * Measures the overhead of counting the changes before the merge.
+ * The count statement only makes sense against a real Oracle database, therefore this benchmark
+ * needs the tables XTEST and S_TEST of the unit tests and the connection properties file given by -Doracle.config
+ * (DRIVER_CLASS, URL, USER, PW). The merge is rolled back after every invocation.
+ * @author jan.lolling@gmail.com
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CountChangesBenchmark {
+
+	@Param({"false", "true"})
+	public boolean countChanges;
+
+	private Connection connection;
+	private OracleMerge merge;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		String configFile = System.getProperty("oracle.config", "/Data/Talend/testdata/oracle_test_db.properties");
+		Properties props = new Properties();
+		InputStream in = new FileInputStream(configFile);
+		try {
+			props.load(in);
+		} finally {
+			in.close();
+		}
+		Class.forName(props.getProperty("DRIVER_CLASS"));
+		connection = DriverManager.getConnection(props.getProperty("URL"), props.getProperty("USER"), props.getProperty("PW"));
+		connection.setAutoCommit(false);
+		merge = new OracleMerge(connection);
+		merge.setSourceSelectCode("select * from S_TEST");
+		merge.setAllowInsert(true);
+		merge.setAllowUpdate(true);
+		merge.setFixedColumnValue("JOB_INSTANCE_ID", 99);
+		merge.setCountChanges(countChanges);
+		merge.setTargetTableName("XTEST");
+		merge.init();
+		merge.buildMergeStatement();
+		merge.setDoCommit(false);
+	}
+
+	@TearDown(Level.Invocation)
+	public void rollback() throws Exception {
+		// every invocation must find the same changes
+		connection.rollback();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		merge.close();
+		connection.close();
+	}
+
+	@Benchmark
+	public int execute() throws Exception {
+		return merge.execute();
+	}
+
+}
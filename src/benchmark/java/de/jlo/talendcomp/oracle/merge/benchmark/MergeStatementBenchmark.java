@@ -0,0 +1,86 @@
+package de.jlo.talendcomp.oracle.merge.benchmark;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.jlo.talendcomp.oracle.merge.OracleMerge;
+
+/**
+ * Measures buildMergeStatement() for tables between 10 and 2000 columns.
+ * Fixed values, excluded columns and keyword columns are used to cover 
+ * isFixedColumn(), isExcludedColumn() and isKeyword().
+ * @author jan.lolling@gmail.com
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergeStatementBenchmark {
+	
+	@Param({"10", "100", "500", "2000"})
+	public int countColumns;
+	
+	private Connection connection;
+	private OracleMerge merge;
+	private OracleMerge mergeOnlyChanged;
+	
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		connection = BenchmarkDatabase.connect("merge_statement");
+		BenchmarkDatabase.createTables(connection, countColumns);
+		merge = createMerge(false);
+		mergeOnlyChanged = createMerge(true);
+	}
+	
+	private OracleMerge createMerge(boolean onlyChanged) throws Exception {
+		OracleMerge m = new OracleMerge(connection);
+		m.setTargetTableName(BenchmarkDatabase.getTableName(countColumns));
+		m.setSourceSelectCode("select * from S_" + BenchmarkDatabase.getTableName(countColumns));
+		m.setAllowInsert(true);
+		m.setAllowUpdate(true);
+		m.setUpdateOnlyChangedRows(onlyChanged);
+		// every 10th column gets a fixed value, every 7th is excluded
+		for (int i = 0; i < countColumns; i++) {
+			if (i % 10 == 9) {
+				m.setFixedColumnValue(BenchmarkDatabase.getColumnName(i), null);
+			} else if (i % 7 == 6) {
+				m.addExcludeColumn(BenchmarkDatabase.getColumnName(i));
+			}
+		}
+		m.init();
+		return m;
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		connection.close();
+	}
+	
+	@Benchmark
+	public String buildMergeStatement() throws Exception {
+		return merge.buildMergeStatement();
+	}
+	
+	@Benchmark
+	public String buildMergeStatementOnlyChangedRows() throws Exception {
+		return mergeOnlyChanged.buildMergeStatement();
+	}
+
+}
@@ -0,0 +1,99 @@
+package de.jlo.talendcomp.oracle.merge.benchmark;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.jlo.datamodel.MetadataCache;
+import de.jlo.datamodel.MetadataLoadProfile;
+import de.jlo.datamodel.SQLDataModel;
+import de.jlo.datamodel.SQLTable;
+
+/**
+ * Measures loading the table meta data and the field lookup of SQLTable
+ * @author jan.lolling@gmail.com
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetadataBenchmark {
+	
+	@Param({"10", "100", "500", "2000"})
+	public int countColumns;
+	
+	private Connection connection;
+	private SQLTable table;
+	private String[] fieldNames;
+	
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		connection = BenchmarkDatabase.connect("metadata");
+		BenchmarkDatabase.createTables(connection, countColumns);
+		table = resolveTable(false, MetadataLoadProfile.FULL);
+		fieldNames = new String[table.getFieldCount()];
+		for (int i = 0; i < fieldNames.length; i++) {
+			// the lookup is case insensitive
+			fieldNames[i] = table.getFieldAt(i).getName().toLowerCase();
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		MetadataCache.getInstance().invalidateAll();
+		connection.close();
+	}
+	
+	private SQLTable resolveTable(boolean useCache, MetadataLoadProfile profile) throws Exception {
+		SQLDataModel model = new SQLDataModel(connection);
+		model.setUseMetadataCache(useCache);
+		model.setLoadProfile(profile);
+		return model.resolveTable(null, BenchmarkDatabase.getTableName(countColumns));
+	}
+	
+	@Benchmark
+	public SQLTable resolveTableFull() throws Exception {
+		return resolveTable(false, MetadataLoadProfile.FULL);
+	}
+	
+	@Benchmark
+	public SQLTable resolveTableMergeMinimal() throws Exception {
+		return resolveTable(false, MetadataLoadProfile.MERGE_MINIMAL);
+	}
+	
+	@Benchmark
+	public SQLTable resolveTableCached() throws Exception {
+		return resolveTable(true, MetadataLoadProfile.MERGE_MINIMAL);
+	}
+	
+	@Benchmark
+	public void getFieldAllColumns(Blackhole bh) {
+		for (String name : fieldNames) {
+			bh.consume(table.getField(name));
+		}
+	}
+	
+	@Benchmark
+	public void getPrimaryKeyFieldNames(Blackhole bh) {
+		bh.consume(table.getPrimaryKeyFieldNames());
+		bh.consume(table.getNonPrimaryKeyFieldNames());
+	}
+
+}
@@ -0,0 +1,76 @@
+package de.jlo.datamodel;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Calls the listeners within one background thread.
+ * The queue is bounded, if it is full the oldest event will be dropped,
+ * therefore the thread firing the event never waits for slow listeners.
+ * 
+ * @author jan.lolling@gmail.com
+ */
+public class AsyncDatamodelEventDispatcher implements DatamodelEventDispatcher {
+
+	private static final Logger logger = Logger.getLogger(AsyncDatamodelEventDispatcher.class);
+	public static final int DEFAULT_CAPACITY = 1000;
+	private final ThreadPoolExecutor executor;
+
+	public AsyncDatamodelEventDispatcher() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity max number of events waiting for delivery
+	 */
+	public AsyncDatamodelEventDispatcher(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be greater than 0");
+		}
+		executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, 
+				new ArrayBlockingQueue<Runnable>(capacity), 
+				new ThreadFactory() {
+			
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "datamodel-events");
+						t.setDaemon(true);
+						return t;
+					}
+					
+				}, 
+				new ThreadPoolExecutor.DiscardOldestPolicy());
+	}
+
+	@Override
+	public void dispatch(final DatamodelEvent event, final List<DatamodelListener> listeners) {
+		executor.execute(new Runnable() {
+			
+			@Override
+			public void run() {
+				for (DatamodelListener l : listeners) {
+					try {
+						l.eventHappend(event);
+					} catch (RuntimeException e) {
+						// a failing listener must not stop the delivery to the others
+						logger.warn("Listener failed: " + e.getMessage(), e);
+					}
+				}
+			}
+			
+		});
+	}
+
+	/**
+	 * Stops the background thread after all queued events are delivered
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+}
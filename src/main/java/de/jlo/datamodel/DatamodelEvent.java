@@ -7,12 +7,29 @@ public class DatamodelEvent {
 	public static final int COMPARE_EVENT = 1;
 	public static final int ACTION_MESSAGE_EVENT = 2;
 	public static final int SELECTION_EVENT = 3;
+	public static final int PROGRESS_EVENT = 4;
 
 	private int type;
+	private long workDone = -1;
+	private long totalWork = -1;
 	
 	public DatamodelEvent(SQLDataModel model, String message, int type) {
 		this.model = model;
 		this.message = message;
+		this.type = type;
+	}
+
+	/**
+	 * Creates a progress event
+	 * @param model
+	 * @param message
+	 * @param workDone units already processed
+	 * @param totalWork all units, 0 or less if unknown
+	 */
+	public DatamodelEvent(SQLDataModel model, String message, long workDone, long totalWork) {
+		this(model, message, PROGRESS_EVENT);
+		this.workDone = workDone;
+		this.totalWork = totalWork;
 	}
 
 	public int getType() {
@@ -27,4 +44,29 @@ public class DatamodelEvent {
 		return message;
 	}
 
+	/**
+	 * @return units already processed or -1 if this is not a progress event
+	 */
+	public long getWorkDone() {
+		return workDone;
+	}
+
+	/**
+	 * @return all units or -1 if this is not a progress event or the total work is unknown
+	 */
+	public long getTotalWork() {
+		return totalWork;
+	}
+
+	/**
+	 * @return progress in percent or -1 if unknown
+	 */
+	public int getPercentDone() {
+		if (totalWork > 0 && workDone >= 0) {
+			return (int) (workDone * 100 / totalWork);
+		} else {
+			return -1;
+		}
+	}
+
 }
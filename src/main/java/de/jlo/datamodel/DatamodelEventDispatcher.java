@@ -0,0 +1,19 @@
+package de.jlo.datamodel;
+
+import java.util.List;
+
+/**
+ * Delivers the events of a data model to its listeners.
+ * 
+ * @author jan.lolling@gmail.com
+ */
+public interface DatamodelEventDispatcher {
+
+	/**
+	 * Delivers the event. Will only be called if there are listeners.
+	 * @param event the event
+	 * @param listeners the current listeners, the list can be iterated while listeners are added or removed
+	 */
+	void dispatch(DatamodelEvent event, List<DatamodelListener> listeners);
+
+}
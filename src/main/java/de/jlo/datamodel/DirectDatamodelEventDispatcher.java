@@ -0,0 +1,24 @@
+package de.jlo.datamodel;
+
+import java.util.List;
+
+/**
+ * Calls the listeners within the thread which fires the event.
+ * This is the default dispatcher of the data model.
+ * 
+ * @author jan.lolling@gmail.com
+ */
+public final class DirectDatamodelEventDispatcher implements DatamodelEventDispatcher {
+
+	public static final DirectDatamodelEventDispatcher INSTANCE = new DirectDatamodelEventDispatcher();
+
+	private DirectDatamodelEventDispatcher() {}
+
+	@Override
+	public void dispatch(DatamodelEvent event, List<DatamodelListener> listeners) {
+		for (DatamodelListener l : listeners) {
+			l.eventHappend(event);
+		}
+	}
+
+}
@@ -0,0 +1,151 @@
+package de.jlo.datamodel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * JVM wide cache for table meta data snapshots.
+ * The cache is shared by all SQLDataModel instances which have the cache enabled.
+ * Entries are evicted in least recently used order if the cache exceeds the maximum size
+ * and are ignored after the time to live is elapsed.
+ * 
+ * @author jan.lolling@gmail.com
+ */
+public final class MetadataCache {
+
+	private static final Logger logger = Logger.getLogger(MetadataCache.class);
+	public static final int DEFAULT_MAX_SIZE = 500;
+	public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 5 * 60 * 1000l;
+	private static final MetadataCache instance = new MetadataCache();
+	private int maxSize = DEFAULT_MAX_SIZE;
+	private long timeToLiveMillis = DEFAULT_TIME_TO_LIVE_MILLIS;
+	private final LinkedHashMap<String, CacheEntry> cache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+			return size() > maxSize;
+		}
+
+	};
+
+	private static final class CacheEntry {
+
+		private final SQLTableSnapshot snapshot;
+		private final long createdAt;
+
+		private CacheEntry(SQLTableSnapshot snapshot) {
+			this.snapshot = snapshot;
+			this.createdAt = System.currentTimeMillis();
+		}
+
+	}
+
+	private MetadataCache() {}
+
+	public static MetadataCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Builds the key for a table
+	 * @param url JDBC url of the connection
+	 * @param user database user of the connection
+	 * @param schemaName schema of the table
+	 * @param tableName name of the table
+	 * @return the key
+	 */
+	public static String buildKey(String url, String user, String schemaName, String tableName) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(url);
+		sb.append('|');
+		sb.append(user);
+		sb.append('|');
+		sb.append(schemaName);
+		sb.append('.');
+		sb.append(tableName);
+		return sb.toString().toUpperCase();
+	}
+
+	/**
+	 * Returns the snapshot for the key if exists and not expired
+	 * @param key built with buildKey
+	 * @return snapshot or null
+	 */
+	public synchronized SQLTableSnapshot get(String key) {
+		CacheEntry entry = cache.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (isExpired(entry)) {
+			cache.remove(key);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Cache entry expired: " + key);
+			}
+			return null;
+		}
+		return entry.snapshot;
+	}
+
+	public synchronized void put(String key, SQLTableSnapshot snapshot) {
+		if (key == null) {
+			throw new IllegalArgumentException("key cannot be null");
+		}
+		if (snapshot == null) {
+			throw new IllegalArgumentException("snapshot cannot be null");
+		}
+		cache.put(key, new CacheEntry(snapshot));
+	}
+
+	public synchronized void invalidate(String key) {
+		cache.remove(key);
+	}
+
+	public synchronized void invalidateAll() {
+		cache.clear();
+	}
+
+	public synchronized int size() {
+		return cache.size();
+	}
+
+	private boolean isExpired(CacheEntry entry) {
+		return timeToLiveMillis > 0 && (System.currentTimeMillis() - entry.createdAt) > timeToLiveMillis;
+	}
+
+	public synchronized int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Set the max number of tables in the cache
+	 * @param maxSize must be greater than 0
+	 */
+	public synchronized void setMaxSize(int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be greater than 0");
+		}
+		this.maxSize = maxSize;
+		// shrink the cache immediately, the iterator starts with the least recently used entry
+		while (cache.size() > maxSize) {
+			String eldest = cache.keySet().iterator().next();
+			cache.remove(eldest);
+		}
+	}
+
+	public synchronized long getTimeToLiveMillis() {
+		return timeToLiveMillis;
+	}
+
+	/**
+	 * Set the time to live for cached tables
+	 * @param timeToLiveMillis 0 or less means entries never expire
+	 */
+	public synchronized void setTimeToLiveMillis(long timeToLiveMillis) {
+		this.timeToLiveMillis = timeToLiveMillis;
+	}
+
+}
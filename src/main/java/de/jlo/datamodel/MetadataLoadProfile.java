@@ -0,0 +1,50 @@
+package de.jlo.datamodel;
+
+/**
+ * Controls which meta data categories are loaded for a table.
+ * 
+ * @author jan.lolling@gmail.com
+ */
+public enum MetadataLoadProfile {
+	
+	/**
+	 * columns, primary key, foreign keys, all indexes, partitions and the view source code 
+	 */
+	FULL,
+	
+	/**
+	 * only columns, primary key and unique indexes. 
+	 * This is all what is needed to build a merge statement.
+	 */
+	MERGE_MINIMAL,
+	
+	/**
+	 * like MERGE_MINIMAL and additionally the partitions, needed to merge partition by partition
+	 */
+	MERGE_PARTITIONED;
+	
+	public boolean isLoadForeignKeys() {
+		return this == FULL;
+	}
+	
+	public boolean isLoadOnlyUniqueIndexes() {
+		return this == MERGE_MINIMAL || this == MERGE_PARTITIONED;
+	}
+	
+	public boolean isLoadPartitions() {
+		return this == FULL || this == MERGE_PARTITIONED;
+	}
+	
+	public boolean isLoadViewSourceCode() {
+		return this == FULL;
+	}
+	
+	/**
+	 * @param profile the required profile
+	 * @return true if a table loaded with this profile contains all meta data of the required profile
+	 */
+	public boolean covers(MetadataLoadProfile profile) {
+		return this == profile || this == FULL;
+	}
+
+}
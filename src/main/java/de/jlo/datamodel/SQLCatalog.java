@@ -1,13 +1,13 @@
 package de.jlo.datamodel;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class SQLCatalog extends SQLObject {
 	
-	private List<SQLSchema> schemas = new ArrayList<SQLSchema>();
-	private boolean schemasLoaded = false;
-	private boolean loadingSchemas = false;
+	private final List<SQLSchema> schemas = new CopyOnWriteArrayList<SQLSchema>();
+	private volatile boolean schemasLoaded = false;
+	private volatile boolean loadingSchemas = false;
 	
 	public SQLCatalog(SQLDataModel model, String name) {
     	super(model, name);
@@ -30,6 +30,10 @@ public class SQLConstraint extends SQLObject {
 		referencedTableName = tableName;
 	}
 	
+	public String getReferencedTableName() {
+		return referencedTableName;
+	}
+	
 	public SQLTable getReferencedTable() {
 		return getModel().getSQLTable(referencedTableName);
 	}
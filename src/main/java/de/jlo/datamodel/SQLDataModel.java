@@ -6,8 +6,12 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
-
-import javax.swing.SwingUtilities;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 
@@ -17,20 +21,27 @@ import de.jlo.datamodel.ext.DatabaseExtensionFactory;
 public final class SQLDataModel extends SQLObject implements Comparable<SQLDataModel> {
 
 	private static final Logger logger = Logger.getLogger(SQLDataModel.class);
-	private String errorMessage;
-	private final List<SQLCatalog> catalogs = new ArrayList<SQLCatalog>();
-	private boolean loadingSchemas = false;
-	private boolean loadingCatalogs = false;
-	private boolean useLowerCaseIdentifiers = false;
-	private boolean useUpperCaseIdentifiers = false;
-	private boolean userCaseSensitiveIdentifiers = false;
+	private volatile String errorMessage;
+	private final CopyOnWriteArrayList<SQLCatalog> catalogs = new CopyOnWriteArrayList<SQLCatalog>();
+	private volatile boolean loadingSchemas = false;
+	private volatile boolean loadingCatalogs = false;
+	private volatile boolean useLowerCaseIdentifiers = false;
+	private volatile boolean useUpperCaseIdentifiers = false;
+	private volatile boolean userCaseSensitiveIdentifiers = false;
 	public final char delimiter = 0x00;
-	private boolean schemasLoaded = false;
-	private boolean catalogsLoaded = false;
+	private volatile boolean schemasLoaded = false;
+	private volatile boolean catalogsLoaded = false;
 	private SQLSchema currentSQLSchema = null;
-	private ArrayList<DatamodelListener> listener = new ArrayList<DatamodelListener>();
+	private final List<DatamodelListener> listener = new CopyOnWriteArrayList<DatamodelListener>();
+	private DatamodelEventDispatcher eventDispatcher = DirectDatamodelEventDispatcher.INSTANCE;
 	private DatabaseExtension databaseExtension;
 	private Connection connection;
+	private boolean useMetadataCache = false;
+	private MetadataLoadProfile loadProfile = MetadataLoadProfile.FULL;
+	private final AtomicInteger metadataRoundTrips = new AtomicInteger();
+	private final ConcurrentHashMap<LoadKey, InFlightLoad<?>> inFlightLoads = new ConcurrentHashMap<LoadKey, InFlightLoad<?>>();
+	private String connectionUrl = null;
+	private String connectionUser = null;
 	
 	public void addDatamodelListener(DatamodelListener l) {
 		if (listener.contains(l) == false) {
@@ -46,29 +57,52 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 		listener.clear();
 	}
 	
-	private void fireDatamodelEvent(final String message, final int type) {
+	/**
+	 * @return true if there are listeners, use it to avoid building messages nobody reads
+	 */
+	public boolean hasDatamodelListener() {
+		return listener.isEmpty() == false;
+	}
+	
+	public DatamodelEventDispatcher getEventDispatcher() {
+		return eventDispatcher;
+	}
+
+	/**
+	 * Sets the way the events are delivered to the listeners
+	 * @param eventDispatcher null sets the direct dispatcher
+	 */
+	public void setEventDispatcher(DatamodelEventDispatcher eventDispatcher) {
+		if (eventDispatcher == null) {
+			this.eventDispatcher = DirectDatamodelEventDispatcher.INSTANCE;
+		} else {
+			this.eventDispatcher = eventDispatcher;
+		}
+	}
+	
+	private void fireDatamodelEvent(String message, int type) {
 		if (listener.isEmpty() == false) {
-			if (SwingUtilities.isEventDispatchThread()) {
-				doFireDatemodelEvent(message, type);
-			} else {
-				SwingUtilities.invokeLater(new Runnable() {
-					@Override
-					public void run() {
-						doFireDatemodelEvent(message, type);
-					}
-				});
-			}
+			fireDatamodelEvent(new DatamodelEvent(this, message, type));
 		}
 	}
 	
-	private void doFireDatemodelEvent(String message, int type) {
-		if (logger.isDebugEnabled()) {
-			logger.debug(message);
+	/**
+	 * Informs the listeners about the progress of a long running operation
+	 * @param message
+	 * @param workDone units already processed
+	 * @param totalWork all units, 0 or less if unknown
+	 */
+	public void fireProgressEvent(String message, long workDone, long totalWork) {
+		if (listener.isEmpty() == false) {
+			fireDatamodelEvent(new DatamodelEvent(this, message, workDone, totalWork));
 		}
-		DatamodelEvent e = new DatamodelEvent(this, message, type);
-		for (DatamodelListener l : listener) {
-			l.eventHappend(e);
+	}
+	
+	private void fireDatamodelEvent(DatamodelEvent e) {
+		if (logger.isDebugEnabled()) {
+			logger.debug(e.getMessage());
 		}
+		eventDispatcher.dispatch(e, listener);
 	}
 	
 	public boolean isUseLowerCaeIdentifiers() {
@@ -110,19 +144,27 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 	}
 
 	public boolean loadCatalogs() {
-		if (loadingCatalogs) {
-			return false;
-		}
-		loadingCatalogs = true;
+		return loadOnce("catalogs", this, new Callable<Boolean>() {
+
+			@Override
+			public Boolean call() {
+				return doLoadCatalogs();
+			}
+
+		});
+	}
+	
+	private boolean doLoadCatalogs() {
 		if (Thread.currentThread().isInterrupted()) {
-			loadingSchemas = false;
 			return false;
 		}
+		loadingCatalogs = true;
 		if (logger.isDebugEnabled()) {
 			logger.debug("loadCatalogs");
 		}
 		Connection conn = connection;
 		if (conn == null) {
+			loadingCatalogs = false;
 			return false;
 		}
 		boolean ok = false;
@@ -134,6 +176,7 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 				useUpperCaseIdentifiers = dbmd.storesUpperCaseIdentifiers();
 				userCaseSensitiveIdentifiers = dbmd.storesMixedCaseIdentifiers();
 				catalogsLoaded = false;
+				metadataRoundTrips.incrementAndGet();
 				ResultSet rsCatalogs = dbmd.getCatalogs();
 				catalogs.clear();
 				while (rsCatalogs.next()) {
@@ -162,28 +205,39 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 		} finally {
 			loadingCatalogs = false;
 		}
-		fireDatamodelEvent("Loading catalogs finished (" + catalogs.size() + ")", DatamodelEvent.ACTION_MESSAGE_EVENT);
+		if (hasDatamodelListener()) {
+			fireDatamodelEvent("Loading catalogs finished (" + catalogs.size() + ")", DatamodelEvent.ACTION_MESSAGE_EVENT);
+		}
 		for (SQLCatalog catalog : catalogs) {
 			loadSchemas(catalog);
 		}
 		return ok;
 	}
 	
-	public boolean loadSchemas(SQLCatalog catalog) {
-		if (loadingSchemas) {
+	public boolean loadSchemas(final SQLCatalog catalog) {
+		return loadOnce("schemas", catalog, new Callable<Boolean>() {
+
+			@Override
+			public Boolean call() {
+				return doLoadSchemas(catalog);
+			}
+
+		});
+	}
+	
+	private boolean doLoadSchemas(SQLCatalog catalog) {
+		if (Thread.currentThread().isInterrupted()) {
 			return false;
 		}
 		catalog.setLoadingSchemas(true);
 		loadingSchemas = true;
-		if (Thread.currentThread().isInterrupted()) {
-			loadingSchemas = false;
-			return false;
-		}
 		if (logger.isDebugEnabled()) {
 			logger.debug("loadSchemas for catalog: " + catalog.getName());
 		}
 		Connection conn = connection;
 		if (conn == null) {
+			loadingSchemas = false;
+			catalog.setLoadingSchemas(false);
 			return false;
 		}
 		boolean ok = false;
@@ -193,6 +247,7 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 			if (dbmd != null) {
 				dbmd = conn.getMetaData();
 				catalog.clear();
+				metadataRoundTrips.incrementAndGet();
 				final ResultSet rsSchemas = dbmd.getSchemas();
 				while (rsSchemas.next()) {
 					if (Thread.currentThread().isInterrupted()) {
@@ -224,7 +279,9 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 			loadingSchemas = false;
 			catalog.setLoadingSchemas(false);
 		}
-		fireDatamodelEvent("Loading catalogs+schemas finished (" + catalogs.size() + ")", DatamodelEvent.ACTION_MESSAGE_EVENT);
+		if (hasDatamodelListener()) {
+			fireDatamodelEvent("Loading catalogs+schemas finished (" + catalogs.size() + ")", DatamodelEvent.ACTION_MESSAGE_EVENT);
+		}
 		return ok;
 	}
 	
@@ -233,8 +290,246 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 	}
 	
 	public void addCatalog(SQLCatalog catalog) {
-		if (catalogs.contains(catalog) == false) {
-			catalogs.add(catalog);
+		catalogs.addIfAbsent(catalog);
+	}
+
+	/**
+	 * Resolves exactly one table without walking all catalogs and schemas.
+	 * Only the given schema and table are registered in the model 
+	 * and the table columns, primary key and indexes are loaded.
+	 * @param schemaName schema (owner) of the table, if null the current schema of the connection is used
+	 * @param tableName name of the table
+	 * @return the table or null if the table does not exist
+	 * @throws SQLException
+	 */
+	public SQLTable resolveTable(final String schemaName, final String tableName) throws SQLException {
+		if (tableName == null || tableName.trim().isEmpty()) {
+			throw new IllegalArgumentException("tableName cannot be null or empty");
+		}
+		// concurrent callers for the same table wait for the first one instead of registering the table twice
+		String key = (schemaName != null ? schemaName.toUpperCase() : "") + "." + tableName.toUpperCase();
+		return loadOnce("table", key, null, new Callable<SQLTable>() {
+
+			@Override
+			public SQLTable call() throws SQLException {
+				return doResolveTable(schemaName, tableName);
+			}
+
+		});
+	}
+	
+	private SQLTable doResolveTable(String schemaName, String tableName) throws SQLException {
+		if (logger.isDebugEnabled()) {
+			logger.debug("resolveTable schema=" + schemaName + " table=" + tableName);
+		}
+		DatabaseMetaData dbmd = connection.getMetaData();
+		useLowerCaseIdentifiers = dbmd.storesLowerCaseIdentifiers();
+		useUpperCaseIdentifiers = dbmd.storesUpperCaseIdentifiers();
+		userCaseSensitiveIdentifiers = dbmd.storesMixedCaseIdentifiers();
+		if (schemaName == null) {
+			schemaName = connection.getSchema();
+		}
+		SQLSchema schema = getOrCreateResolvedSchema(schemaName);
+		SQLTable table = schema.getRegisteredTable(tableName);
+		if (table != null && table.isFieldsLoaded() && table.getLoadProfile().covers(loadProfile)) {
+			// already resolved, nothing to query again
+			return table;
+		}
+		String cacheKey = null;
+		if (useMetadataCache) {
+			cacheKey = getMetadataCacheKey(dbmd, schemaName, tableName, loadProfile);
+			SQLTableSnapshot snapshot = MetadataCache.getInstance().get(cacheKey);
+			if (snapshot != null) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("resolveTable use cached meta data for: " + cacheKey);
+				}
+				return restoreTable(snapshot);
+			}
+		}
+		table = findTable(dbmd, schema, tableName);
+		if (table == null) {
+			String identifier = toStoredIdentifierCase(tableName);
+			if (identifier.equals(tableName) == false) {
+				table = findTable(dbmd, schema, identifier);
+			}
+		}
+		if (table == null) {
+			return null;
+		}
+		// the table keeps the profile it is loaded with, even if the profile of the model changes later
+		table.setLoadProfile(loadProfile);
+		table.loadColumns();
+		if (cacheKey != null && table.isFieldsLoaded() && table.getFieldCount() > 0) {
+			MetadataCache.getInstance().put(cacheKey, SQLTableSnapshot.create(table));
+		}
+		return table;
+	}
+	
+	/**
+	 * Registers a table with the meta data of a snapshot without any query
+	 * @param snapshot e.g. kept by a cache
+	 * @return the new table within this model
+	 * @throws SQLException
+	 */
+	public SQLTable restoreTable(SQLTableSnapshot snapshot) throws SQLException {
+		SQLTable table = snapshot.restore(getOrCreateResolvedSchema(snapshot.getSchemaName()));
+		table.setLoadProfile(loadProfile);
+		return table;
+	}
+	
+	private String getMetadataCacheKey(DatabaseMetaData dbmd, String schemaName, String tableName, MetadataLoadProfile profile) throws SQLException {
+		if (connectionUrl == null) {
+			connectionUrl = dbmd.getURL();
+			connectionUser = dbmd.getUserName();
+		}
+		// snapshots of different profiles contain different meta data
+		return MetadataCache.buildKey(connectionUrl, connectionUser, schemaName, tableName) + "|" + profile.name();
+	}
+	
+	/**
+	 * Removes the table from the JVM wide meta data cache
+	 * @param schemaName schema of the table, if null the current schema of the connection is used
+	 * @param tableName name of the table
+	 * @throws SQLException
+	 */
+	public void invalidateCachedTable(String schemaName, String tableName) throws SQLException {
+		if (schemaName == null) {
+			schemaName = connection.getSchema();
+		}
+		DatabaseMetaData dbmd = connection.getMetaData();
+		for (MetadataLoadProfile profile : MetadataLoadProfile.values()) {
+			MetadataCache.getInstance().invalidate(getMetadataCacheKey(dbmd, schemaName, tableName, profile));
+		}
+	}
+	
+	public boolean isUseMetadataCache() {
+		return useMetadataCache;
+	}
+
+	/**
+	 * If true, resolveTable takes the table meta data from the JVM wide MetadataCache
+	 * and put the loaded tables into the cache.
+	 * @param useMetadataCache
+	 */
+	public void setUseMetadataCache(boolean useMetadataCache) {
+		this.useMetadataCache = useMetadataCache;
+	}
+	
+	/**
+	 * @return number of meta data queries sent to the database by this model
+	 */
+	public int getMetadataRoundTrips() {
+		return metadataRoundTrips.get();
+	}
+	
+	/**
+	 * Database extensions count their own meta data queries with this method
+	 */
+	public void incrementMetadataRoundTrips() {
+		metadataRoundTrips.incrementAndGet();
+	}
+	
+	public MetadataLoadProfile getLoadProfile() {
+		return loadProfile;
+	}
+
+	/**
+	 * Sets the default profile for loading table meta data.
+	 * Tables can override the profile with SQLTable.setLoadProfile
+	 * @param loadProfile FULL (default), MERGE_MINIMAL or MERGE_PARTITIONED
+	 */
+	public void setLoadProfile(MetadataLoadProfile loadProfile) {
+		if (loadProfile == null) {
+			throw new IllegalArgumentException("loadProfile cannot be null");
+		}
+		this.loadProfile = loadProfile;
+	}
+	
+	private synchronized SQLSchema getOrCreateResolvedSchema(String schemaName) throws SQLException {
+		SQLCatalog catalog = null;
+		String catalogName = connection.getCatalog();
+		if (catalogName != null && catalogName.isEmpty() == false) {
+			catalog = getSQLCatalogInternal(catalogName);
+			if (catalog == null) {
+				catalog = new SQLCatalog(this, catalogName);
+				addCatalog(catalog);
+			}
+		} else {
+			catalog = getSQLCatalogInternal(DefaultCatalog.DEFAULT);
+			if (catalog == null) {
+				catalog = new DefaultCatalog(this);
+				addCatalog(catalog);
+			}
+		}
+		SQLSchema schema = null;
+		if (schemaName != null) {
+			schema = catalog.getSQLSchema(schemaName);
+			if (schema == null) {
+				schema = new SQLSchema(this, toStoredIdentifierCase(schemaName));
+				catalog.addSQLSchema(schema);
+			}
+		} else {
+			// database without schemas
+			if (catalog.getCountSchemas() > 0) {
+				schema = catalog.getSchemaAt(0);
+			} else {
+				schema = new DefaultSchema(this);
+				catalog.addSQLSchema(schema);
+			}
+		}
+		return schema;
+	}
+	
+	private SQLTable findTable(DatabaseMetaData dbmd, SQLSchema schema, String tableName) throws SQLException {
+		SQLTable table = null;
+		metadataRoundTrips.incrementAndGet();
+		ResultSet rs = dbmd.getTables(
+				schema.getCatalog().getKey(), 
+				schema.getKey(), 
+				tableName, 
+				null);
+		try {
+			while (rs.next()) {
+				// the name is a pattern, _ matches any character
+				String name = rs.getString("TABLE_NAME");
+				if (tableName.equals(name)) {
+					table = new SQLTable(this, schema, name);
+					table.setType(rs.getString("TABLE_TYPE"));
+					table.setComment(rs.getString("REMARKS"));
+					break;
+				}
+			}
+		} finally {
+			rs.close();
+		}
+		if (table != null) {
+			schema.addTable(table);
+		}
+		return table;
+	}
+	
+	private String toStoredIdentifierCase(String name) {
+		if (useUpperCaseIdentifiers) {
+			return name.toUpperCase();
+		} else if (useLowerCaseIdentifiers) {
+			return name.toLowerCase();
+		} else {
+			return name;
+		}
+	}
+	
+	private SQLCatalog getSQLCatalogInternal(String name) {
+		for (SQLCatalog c : catalogs) {
+			if (name.equalsIgnoreCase(c.getName())) {
+				return c;
+			}
+		}
+		return null;
+	}
+	
+	private void ensureCatalogsLoaded() {
+		if (catalogsLoaded == false) {
+			loadCatalogs();
 		}
 	}
 
@@ -242,6 +537,7 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 		if (isIdentifierName(tableName) == false) {
 			return null;
 		}
+		ensureCatalogsLoaded();
 		for (SQLCatalog cat : catalogs) {
 			for (SQLSchema schema : cat.getSchemas()) {
 				if (schema.getName().equalsIgnoreCase(schemaName)) {
@@ -273,6 +569,7 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 		if (pos > 0) {
 			currentCatalog = schemaName.substring(0, pos);
 		}
+		ensureCatalogsLoaded();
 		for (SQLCatalog cat : catalogs) {
 			if (currentCatalog != null) {
 				if (currentCatalog.equals(cat.getName()) == false) {
@@ -331,15 +628,12 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 	}
 	
 	public SQLCatalog getSQLCatalog(String name) {
-		for (SQLCatalog c : catalogs) {
-			if (name.equalsIgnoreCase(c.getName())) {
-				return c;
-			}
-		}
-		return null;
+		ensureCatalogsLoaded();
+		return getSQLCatalogInternal(name);
 	}
 	
 	public List<SQLCatalog> getCatalogs() {
+		ensureCatalogsLoaded();
 		return catalogs;
 	}
 
@@ -357,20 +651,29 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 		return null;
 	}
 	
-	public boolean loadTables(SQLSchema schema) {
-		if (schema.isLoadingTables()) {
-			return false;
-		}
-		schema.setLoadingTables(true);
+	public boolean loadTables(final SQLSchema schema) {
+		return loadOnce("tables", schema, new Callable<Boolean>() {
+
+			@Override
+			public Boolean call() {
+				return doLoadTables(schema);
+			}
+
+		});
+	}
+	
+	private boolean doLoadTables(SQLSchema schema) {
 		if (Thread.currentThread().isInterrupted()) {
 			return false;
 		}
+		schema.setLoadingTables(true);
 		if (logger.isDebugEnabled()) {
 			logger.debug("loadTables schema=" + schema);
 		}
 		boolean ok = false;
 		Connection conn = connection;
 		if (conn == null) {
+			schema.setLoadingTables(false);
 			return false;
 		}
 		try {
@@ -391,7 +694,9 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 		} finally {
 			schema.setLoadingTables(false);
 		}
-		fireDatamodelEvent("Loading tables and views finished: " + schema.getTableCount() + " tables.", DatamodelEvent.ACTION_MESSAGE_EVENT);
+		if (hasDatamodelListener()) {
+			fireDatamodelEvent("Loading tables and views finished: " + schema.getTableCount() + " tables.", DatamodelEvent.ACTION_MESSAGE_EVENT);
+		}
 		return ok;
 	}
 	
@@ -412,7 +717,9 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 			}
 			fireDatamodelEvent("Loading sequences...", DatamodelEvent.ACTION_MESSAGE_EVENT);
 			databaseExtension.listSequences(conn, schema);
-			fireDatamodelEvent("Loading sequences for " + schema + " finished: " + schema.getSequenceCount() + " sequences.", DatamodelEvent.ACTION_MESSAGE_EVENT);
+			if (hasDatamodelListener()) {
+				fireDatamodelEvent("Loading sequences for " + schema + " finished: " + schema.getSequenceCount() + " sequences.", DatamodelEvent.ACTION_MESSAGE_EVENT);
+			}
 			return true;
 		} else {
 			return false;
@@ -426,11 +733,18 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 	 *            object that represent a schema
 	 * @return true if everything went well
 	 */
-	public boolean loadProcedures(SQLSchema schema) {
-		if (schema.isLoadingProcedures()) {
-			return false;
-		}
-		// makes this thread save
+	public boolean loadProcedures(final SQLSchema schema) {
+		return loadOnce("procedures", schema, new Callable<Boolean>() {
+
+			@Override
+			public Boolean call() {
+				return doLoadProcedures(schema);
+			}
+
+		});
+	}
+	
+	private boolean doLoadProcedures(SQLSchema schema) {
 		schema.setLoadingProcedures(true);
 		if (logger.isDebugEnabled()) {
 			logger.debug("loadProcedures schema=" + schema);
@@ -438,10 +752,13 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 		boolean ok = false;
 		Connection conn = connection;
 		if (conn == null) {
+			schema.setLoadingProcedures(false);
 			return false;
 		}
 		try {
-			fireDatamodelEvent("Load procedures for " + schema, DatamodelEvent.ACTION_MESSAGE_EVENT);
+			if (hasDatamodelListener()) {
+				fireDatamodelEvent("Load procedures for " + schema, DatamodelEvent.ACTION_MESSAGE_EVENT);
+			}
 			databaseExtension.loadProcedures(conn, schema);
 			fireDatamodelEvent("Loading procedure source code", DatamodelEvent.ACTION_MESSAGE_EVENT);
 			for (int i = 0; i < schema.getProcedureCount(); i++) {
@@ -449,7 +766,9 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 				databaseExtension.setupProcedureSQLCode(conn, p);
 			}
 			ok = true;
-			fireDatamodelEvent("Load procedures for " + schema + " finished: " + schema.getProcedureCount() + " procedures.", DatamodelEvent.ACTION_MESSAGE_EVENT);
+			if (hasDatamodelListener()) {
+				fireDatamodelEvent("Load procedures for " + schema + " finished: " + schema.getProcedureCount() + " procedures.", DatamodelEvent.ACTION_MESSAGE_EVENT);
+			}
 		} catch (SQLException sqle) {
 			try {
 				if (conn.getAutoCommit() == false) {
@@ -475,10 +794,18 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 		return loadColumns(table, false);
 	}
 
-	boolean loadColumns(SQLTable table, boolean ignoreIndices) {
-		if (table.isLoadingColumns()) {
-			return false;
-		}
+	boolean loadColumns(final SQLTable table, final boolean ignoreIndices) {
+		return loadOnce("columns", table, new Callable<Boolean>() {
+
+			@Override
+			public Boolean call() {
+				return doLoadColumns(table, ignoreIndices);
+			}
+
+		});
+	}
+	
+	private boolean doLoadColumns(SQLTable table, boolean ignoreIndices) {
 		table.setLoadingColumns(true);
 		if (Thread.currentThread().isInterrupted()) {
 			table.setLoadingColumns(false);
@@ -493,52 +820,39 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 			return false;
 		}
 		try {
-			fireDatamodelEvent("Load columns for " + table, DatamodelEvent.ACTION_MESSAGE_EVENT);
+			if (hasDatamodelListener()) {
+				fireDatamodelEvent("Load columns for " + table, DatamodelEvent.ACTION_MESSAGE_EVENT);
+			}
 			DatabaseMetaData dbmd = conn.getMetaData();
 			if (dbmd != null) {
-				SQLField field = null;
 				try {
-					table.clearFields();
-					final ResultSet rs = dbmd.getColumns(
-							table.getSchema().getCatalog().getKey(), 
-							table.getSchema().getKey(), 
-							table.getName(), 
-							null);
-					if (rs != null) {
-						while (rs.next()) {
-							if (Thread.currentThread().isInterrupted()) {
-								break;
-							}
-							String tableName = rs.getString("TABLE_NAME");
-							if (table.getName().equalsIgnoreCase(tableName)) {
-								String name = rs.getString("COLUMN_NAME");
-								field = new SQLField(this, table, name);
-								field.setType(rs.getInt("DATA_TYPE"));
-								field.setTypeName(rs.getString("TYPE_NAME"));
-								field.setLength(rs.getInt("COLUMN_SIZE"));
-								field.setDecimalDigits(rs.getInt("DECIMAL_DIGITS"));
-								field.setOrdinalPosition(rs.getInt("ORDINAL_POSITION"));
-								field.setNullValueAllowed(rs.getInt("NULLABLE") == DatabaseMetaData.columnNullable);
-								databaseExtension.setupDataType(field);
-								table.addField(field);
-							}
+					MetadataLoadProfile profile = table.getLoadProfile();
+					if (table.isView() == false && databaseExtension.loadTableDetails(conn, table, ignoreIndices == false, profile.isLoadOnlyUniqueIndexes())) {
+						// the database extension has loaded columns, primary key and indexes with its own queries
+						fireDatamodelEvent("Loading columns, primary key and indexes finished", DatamodelEvent.ACTION_MESSAGE_EVENT);
+						if (ignoreIndices == false) {
+							table.setIndexesLoaded();
 						}
-						rs.close();
+						if (profile.isLoadForeignKeys()) {
+							loadForeignKeyConstraints(table);
+						}
+						return true;
 					}
+					loadColumns(dbmd, table);
 					fireDatamodelEvent("Loading columns finished", DatamodelEvent.ACTION_MESSAGE_EVENT);
 					if (table.isView()) {
 						if (table.isMaterializedView()) {
 							if (ignoreIndices == false) {
-								loadIndexes(table);
+								loadIndexes(table, profile.isLoadOnlyUniqueIndexes());
 							}
 						}
-						if (ignoreIndices == false) {
+						if (ignoreIndices == false && profile.isLoadViewSourceCode()) {
 							databaseExtension.setupViewSQLCode(conn, table);
 						}
 					} else {
-						loadConstraints(table);
+						loadConstraints(table, profile.isLoadForeignKeys());
 						if (ignoreIndices == false) {
-							loadIndexes(table);
+							loadIndexes(table, profile.isLoadOnlyUniqueIndexes());
 						}
 					}
 				} catch (SQLException sqle) {
@@ -550,7 +864,9 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 						// ignore
 					}
 					logger.error("loadColumns (get columns) for table=" + table + " failed: " + sqle.getMessage());
-					fireDatamodelEvent("Loading columns for table=" + table + " failed", DatamodelEvent.ACTION_MESSAGE_EVENT);
+					if (hasDatamodelListener()) {
+						fireDatamodelEvent("Loading columns for table=" + table + " failed", DatamodelEvent.ACTION_MESSAGE_EVENT);
+					}
 					table.setLoadingColumns(false);
 					return false;
 				} finally {
@@ -572,7 +888,40 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 		return true;
 	}
 	
-	private boolean loadConstraints(SQLTable table) {
+	private void loadColumns(DatabaseMetaData dbmd, SQLTable table) throws SQLException {
+		// concurrent readers keep the current fields until the new ones are complete
+		List<SQLField> fields = new ArrayList<SQLField>();
+		metadataRoundTrips.incrementAndGet();
+		final ResultSet rs = dbmd.getColumns(
+				table.getSchema().getCatalog().getKey(), 
+				table.getSchema().getKey(), 
+				table.getName(), 
+				null);
+		if (rs != null) {
+			while (rs.next()) {
+				if (Thread.currentThread().isInterrupted()) {
+					break;
+				}
+				String tableName = rs.getString("TABLE_NAME");
+				if (table.getName().equalsIgnoreCase(tableName)) {
+					String name = rs.getString("COLUMN_NAME");
+					SQLField field = new SQLField(this, table, name);
+					field.setType(rs.getInt("DATA_TYPE"));
+					field.setTypeName(rs.getString("TYPE_NAME"));
+					field.setLength(rs.getInt("COLUMN_SIZE"));
+					field.setDecimalDigits(rs.getInt("DECIMAL_DIGITS"));
+					field.setOrdinalPosition(rs.getInt("ORDINAL_POSITION"));
+					field.setNullValueAllowed(rs.getInt("NULLABLE") == DatabaseMetaData.columnNullable);
+					databaseExtension.setupDataType(field);
+					fields.add(field);
+				}
+			}
+			rs.close();
+		}
+		table.setFields(fields);
+	}
+	
+	private boolean loadConstraints(SQLTable table, boolean withForeignKeys) {
 		if (table.isLoadingConstraints()) {
 			return false;
 		}
@@ -588,11 +937,14 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 			return false;
 		}
 		try {
-			fireDatamodelEvent("Load primary key constraints for table " + table, DatamodelEvent.ACTION_MESSAGE_EVENT);
+			if (hasDatamodelListener()) {
+				fireDatamodelEvent("Load primary key constraints for table " + table, DatamodelEvent.ACTION_MESSAGE_EVENT);
+			}
 			DatabaseMetaData dbmd = conn.getMetaData();
 			if (dbmd != null) {
 				table.clearConstraints();
 				try {
+					metadataRoundTrips.incrementAndGet();
 					final ResultSet rs = dbmd.getPrimaryKeys(
 							table.getSchema().getCatalog().getKey(), 
 							table.getSchema().getKey(), 
@@ -644,52 +996,7 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 				if (Thread.currentThread().isInterrupted()) {
 					return false;
 				}
-				try {
-					fireDatamodelEvent("Load foreign key constraints for table " + table, DatamodelEvent.ACTION_MESSAGE_EVENT);
-					final ResultSet rs = dbmd.getImportedKeys(
-							table.getSchema().getCatalog().getKey(), 
-							table.getSchema().getKey(), 
-							table.getName());
-					if (rs != null) {
-						while (rs.next()) {
-							if (Thread.currentThread().isInterrupted()) {
-								break;
-							}
-							String name = rs.getString("FK_NAME");
-							String referencedSchema = rs.getString("PKTABLE_SCHEM");
-							String referencedTable = rs.getString("PKTABLE_NAME");
-							SQLConstraint constraint = table.getConstraint(name);
-							if (constraint == null) {
-								constraint = new SQLConstraint(
-										this, 
-										table,
-										SQLConstraint.FOREIGN_KEY, 
-										name);
-								if (referencedSchema == null || referencedSchema.isEmpty()) {
-									referencedSchema = table.getSchema().getName();
-								}
-								constraint.setReferencedTableName(referencedSchema + "." + referencedTable);
-								table.addConstraint(constraint);
-							}
-							constraint.addForeignKeyColumnNamePair(
-									rs.getString("FKCOLUMN_NAME"), 
-									rs.getString("PKCOLUMN_NAME"), 
-									rs.getShort("KEY_SEQ"));
-							if (logger.isDebugEnabled()) {
-								logger.debug("fk constraint changed: " + constraint);
-							}
-						}
-						rs.close();
-						table.setConstraintsLoaded();
-					}
-					if (logger.isDebugEnabled()) {
-						List<SQLConstraint> list = table.getConstraints();
-						for (int i = 0; i < list.size(); i++) {
-							logger.debug(" * " + list.get(i));
-						}
-					}
-				} catch (SQLException sqle) {
-					logger.error("loadConstraints (fk) for table=" + table + " failed: " + sqle.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+				if (withForeignKeys && loadForeignKeyConstraints(dbmd, table) == false) {
 					table.setLoadingConstraints(false);
 					return false;
 				}
@@ -704,7 +1011,79 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 		return true;
 	}
 	
-	private boolean loadIndexes(SQLTable table) {
+	private boolean loadForeignKeyConstraints(SQLTable table) {
+		Connection conn = connection;
+		if (conn == null) {
+			return false;
+		}
+		try {
+			boolean ok = loadForeignKeyConstraints(conn.getMetaData(), table);
+			if (ok) {
+				fireDatamodelEvent("Loading constraints finished", DatamodelEvent.ACTION_MESSAGE_EVENT);
+			}
+			return ok;
+		} catch (SQLException sqle) {
+			logger.error("loadForeignKeyConstraints for table=" + table + " failed: " + sqle.getMessage());
+			return false;
+		}
+	}
+	
+	private boolean loadForeignKeyConstraints(DatabaseMetaData dbmd, SQLTable table) {
+		try {
+			if (hasDatamodelListener()) {
+				fireDatamodelEvent("Load foreign key constraints for table " + table, DatamodelEvent.ACTION_MESSAGE_EVENT);
+			}
+			metadataRoundTrips.incrementAndGet();
+			final ResultSet rs = dbmd.getImportedKeys(
+					table.getSchema().getCatalog().getKey(), 
+					table.getSchema().getKey(), 
+					table.getName());
+			if (rs != null) {
+				while (rs.next()) {
+					if (Thread.currentThread().isInterrupted()) {
+						break;
+					}
+					String name = rs.getString("FK_NAME");
+					String referencedSchema = rs.getString("PKTABLE_SCHEM");
+					String referencedTable = rs.getString("PKTABLE_NAME");
+					SQLConstraint constraint = table.getConstraint(name);
+					if (constraint == null) {
+						constraint = new SQLConstraint(
+								this, 
+								table,
+								SQLConstraint.FOREIGN_KEY, 
+								name);
+						if (referencedSchema == null || referencedSchema.isEmpty()) {
+							referencedSchema = table.getSchema().getName();
+						}
+						constraint.setReferencedTableName(referencedSchema + "." + referencedTable);
+						table.addConstraint(constraint);
+					}
+					constraint.addForeignKeyColumnNamePair(
+							rs.getString("FKCOLUMN_NAME"), 
+							rs.getString("PKCOLUMN_NAME"), 
+							rs.getShort("KEY_SEQ"));
+					if (logger.isDebugEnabled()) {
+						logger.debug("fk constraint changed: " + constraint);
+					}
+				}
+				rs.close();
+				table.setConstraintsLoaded();
+			}
+			if (logger.isDebugEnabled()) {
+				List<SQLConstraint> list = table.getConstraints();
+				for (int i = 0; i < list.size(); i++) {
+					logger.debug(" * " + list.get(i));
+				}
+			}
+		} catch (SQLException sqle) {
+			logger.error("loadConstraints (fk) for table=" + table + " failed: " + sqle.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+			return false;
+		}
+		return true;
+	}
+	
+	private boolean loadIndexes(SQLTable table, boolean onlyUnique) {
 		if (table.isLoadingIndexes()) {
 			return false;
 		}
@@ -720,12 +1099,15 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 			return false;
 		}
 		try {
-			fireDatamodelEvent("Load indexes for table " + table, DatamodelEvent.ACTION_MESSAGE_EVENT);
+			if (hasDatamodelListener()) {
+				fireDatamodelEvent("Load indexes for table " + table, DatamodelEvent.ACTION_MESSAGE_EVENT);
+			}
 			DatabaseMetaData dbmd = conn.getMetaData();
 			if (dbmd != null) {
 				table.clearIndexes();
 				SQLIndex index = null;
-				ResultSet rs = dbmd.getIndexInfo(null, table.getSchema().getName(), table.getName(), false, true);
+				metadataRoundTrips.incrementAndGet();
+				ResultSet rs = dbmd.getIndexInfo(null, table.getSchema().getName(), table.getName(), onlyUnique, true);
 				if (rs != null) {
 					while (rs.next()) {
 						if (Thread.currentThread().isInterrupted()) {
@@ -781,7 +1163,9 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 				// ignore
 			}
 			logger.error("loadIndexes failed: " + e.getMessage(), e);
-			fireDatamodelEvent("Load indexes for table " + table + " failed.", DatamodelEvent.ACTION_MESSAGE_EVENT);
+			if (hasDatamodelListener()) {
+				fireDatamodelEvent("Load indexes for table " + table + " failed.", DatamodelEvent.ACTION_MESSAGE_EVENT);
+			}
 			return false;
 		} finally {
 			table.setLoadingIndexes(false);
@@ -789,6 +1173,93 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 		return false;
 	}
 
+	/**
+	 * Runs the loader only once per object at a time. Concurrent callers for the same object
+	 * wait for the running load and get its result instead of loading again.
+	 * A call from the loading thread itself (e.g. a field lookup while the columns are loading) 
+	 * gets the reentrantResult immediately.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T loadOnce(String kind, Object target, T reentrantResult, Callable<T> loader) throws SQLException {
+		LoadKey key = new LoadKey(kind, target);
+		InFlightLoad<T> load = new InFlightLoad<T>(loader);
+		InFlightLoad<T> running = (InFlightLoad<T>) inFlightLoads.putIfAbsent(key, load);
+		if (running == null) {
+			try {
+				load.run();
+			} finally {
+				inFlightLoads.remove(key, load);
+			}
+			running = load;
+		} else if (running.owner == Thread.currentThread()) {
+			return reentrantResult;
+		}
+		try {
+			return running.get();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			return reentrantResult;
+		} catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw new SQLException(cause.getMessage(), cause);
+			}
+		}
+	}
+	
+	private boolean loadOnce(String kind, Object target, Callable<Boolean> loader) {
+		try {
+			return loadOnce(kind, target, Boolean.FALSE, loader);
+		} catch (SQLException sqle) {
+			// the boolean loaders catch their SQLExceptions themselves
+			errorMessage = "load " + kind + " failed: " + sqle.getMessage();
+			logger.error(errorMessage, sqle);
+			return false;
+		}
+	}
+	
+	private static final class InFlightLoad<T> extends FutureTask<T> {
+		
+		private final Thread owner = Thread.currentThread();
+		
+		private InFlightLoad(Callable<T> loader) {
+			super(loader);
+		}
+		
+	}
+	
+	private static final class LoadKey {
+		
+		private final String kind;
+		private final Object target;
+		
+		private LoadKey(String kind, Object target) {
+			this.kind = kind;
+			this.target = target;
+		}
+		
+		@Override
+		public int hashCode() {
+			return kind.hashCode() * 31 + target.hashCode();
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if (o instanceof LoadKey) {
+				LoadKey other = (LoadKey) o;
+				return kind.equals(other.kind) && target.equals(other.target);
+			}
+			return false;
+		}
+		
+	}
+	
 	public String getLastErrorMessage() {
 		return errorMessage;
 	}
@@ -805,6 +1276,7 @@ public final class SQLDataModel extends SQLObject implements Comparable<SQLDataM
 	}
 
 	public List<SQLSchema> getSchemas() {
+		ensureCatalogsLoaded();
 		List<SQLSchema> list = new ArrayList<SQLSchema>();
 		for (SQLCatalog c : catalogs) {
 			for (SQLSchema s : c.getSchemas()) {
@@ -65,7 +65,12 @@ public final class SQLField extends SQLObject implements Comparable<SQLField>, F
 	}
 
 	public void setPrimaryKey(boolean isPrimaryKey_loc) {
-		this.isPrimaryKey = isPrimaryKey_loc;
+		if (this.isPrimaryKey != isPrimaryKey_loc) {
+			this.isPrimaryKey = isPrimaryKey_loc;
+			if (ownSQLTable != null) {
+				ownSQLTable.primaryKeyChanged();
+			}
+		}
 	}
 
 	public boolean isPrimaryKey() {
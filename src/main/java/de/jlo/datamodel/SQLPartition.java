@@ -0,0 +1,49 @@
+package de.jlo.datamodel;
+
+/**
+ * One partition of a partitioned table. Immutable, can be shared between snapshots and tables.
+ * 
+ * @author jan.lolling@gmail.com
+ */
+public final class SQLPartition {
+
+	private final String name;
+	private final int position;
+	private final String highValue;
+
+	/**
+	 * @param name name of the partition
+	 * @param position position of the partition starting with 1
+	 * @param highValue SQL code of the upper bound (range) or the value list (list), null for hash partitions
+	 */
+	public SQLPartition(String name, int position, String highValue) {
+		if (name == null || name.trim().isEmpty()) {
+			throw new IllegalArgumentException("name cannot be null or empty");
+		}
+		this.name = name;
+		this.position = position;
+		this.highValue = highValue;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getPosition() {
+		return position;
+	}
+
+	/**
+	 * @return the upper bound as SQL code (e.g. MAXVALUE or TO_DATE(...)) for range partitions,
+	 * the values separated by comma or DEFAULT for list partitions and null for hash partitions
+	 */
+	public String getHighValue() {
+		return highValue;
+	}
+
+	@Override
+	public String toString() {
+		return name + " (" + highValue + ")";
+	}
+
+}
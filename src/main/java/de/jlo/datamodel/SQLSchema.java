@@ -3,22 +3,24 @@ package de.jlo.datamodel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class SQLSchema extends SQLObject {
 
     private final Vector<SQLTable> tableList = new Vector<SQLTable>();
-    private final HashMap<String, SQLTable> tableMap = new HashMap<String, SQLTable>();
-    private final ArrayList<SQLProcedure> procedureList = new ArrayList<SQLProcedure>();
-    private final ArrayList<SQLSequence> sequenceList = new ArrayList<SQLSequence>();
-    private boolean loadingTables = false;
-    private boolean loadingProcedures = false;
-    private boolean tablesLoaded = false;
-    private boolean procedureLoaded = false;
-    private boolean loadingSequences = false;
-    private boolean sequencesLoaded = false;
+    private final Map<String, SQLTable> tableMap = new ConcurrentHashMap<String, SQLTable>();
+    private final List<SQLProcedure> procedureList = new CopyOnWriteArrayList<SQLProcedure>();
+    private final List<SQLSequence> sequenceList = new CopyOnWriteArrayList<SQLSequence>();
+    private volatile boolean loadingTables = false;
+    private volatile boolean loadingProcedures = false;
+    private volatile boolean tablesLoaded = false;
+    private volatile boolean procedureLoaded = false;
+    private volatile boolean loadingSequences = false;
+    private volatile boolean sequencesLoaded = false;
     private SQLCatalog catalog;
 
     public void setProcedureLoaded() {
@@ -133,9 +135,27 @@ public class SQLSchema extends SQLObject {
     	super(model, name);
     }
 
-    public void addTable(SQLTable table) {
-        tableList.addElement(table);
-        tableMap.put(table.getName().toLowerCase(), table);
+    /**
+     * Adds the table or replaces a table with the same name
+     * @param table
+     */
+    public synchronized void addTable(SQLTable table) {
+        SQLTable existing = tableMap.put(table.getName().toLowerCase(), table);
+        int index = existing != null ? tableList.indexOf(existing) : -1;
+        if (index >= 0) {
+            tableList.set(index, table);
+        } else {
+            tableList.addElement(table);
+        }
+    }
+    
+    /**
+     * Returns the table only if it is already registered, does not load the tables of the schema
+     * @param name
+     * @return the table or null
+     */
+    SQLTable getRegisteredTable(String name) {
+        return tableMap.get(name.toLowerCase());
     }
     
     void removeSQLTable(SQLTable table) {
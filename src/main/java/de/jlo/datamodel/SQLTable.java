@@ -1,10 +1,12 @@
 package de.jlo.datamodel;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
 /**
@@ -15,9 +17,10 @@ import java.util.Map;
  */
 public final class SQLTable extends SQLObject {
 
-	private final List<SQLField> listColumns = new ArrayList<SQLField>();
-	private final List<SQLIndex> listIndexes = new ArrayList<SQLIndex>();
-    private final Map<String, SQLField> fieldMap = new HashMap<String, SQLField>();
+	// the model is shared between threads, readers must never see a list in the middle of a change
+	// therefore the fields are replaced as a whole
+	private volatile Fields fields = Fields.EMPTY;
+	private final List<SQLIndex> listIndexes = new CopyOnWriteArrayList<SQLIndex>();
     private SQLSchema schema;
     private String type;
     private String comment;
@@ -35,16 +38,20 @@ public final class SQLTable extends SQLObject {
     static public final String TYPE_ALIAS               = "ALIAS";
     static public final String TYPE_SYNONYM             = "SYNONYM";
     static public final String TYPE_SYSTEM              = "SYSTEM";
-    private boolean fieldsLoaded = false;
-    private boolean constraintsLoaded = false;
-    private boolean indexesLoaded = false;
+    private volatile boolean fieldsLoaded = false;
+    private volatile boolean constraintsLoaded = false;
+    private volatile boolean indexesLoaded = false;
     private Map<String, SQLConstraint> constraintMap = new HashMap<String, SQLConstraint>();
     private transient SQLConstraint primaryKeyConstraint = null;
-    private boolean loadingColumns = false;
-    private boolean loadingConstraints = false;
-    private boolean loadingIndexes = false;
+    private volatile boolean loadingColumns = false;
+    private volatile boolean loadingConstraints = false;
+    private volatile boolean loadingIndexes = false;
     private boolean inheritated = false;
     private int countPartitions = 0;
+    private volatile String partitioningType = null;
+    private volatile List<String> partitionKeyColumns = Collections.emptyList();
+    private volatile List<SQLPartition> partitions = Collections.emptyList();
+    private MetadataLoadProfile loadProfile = null;
 
     public SQLTable(SQLDataModel model, SQLSchema schema, String name) {
     	super(model, name);
@@ -55,6 +62,7 @@ public final class SQLTable extends SQLObject {
     	clearConstraints();
     	clearIndexes();
     	clearFields();
+    	setPartitioning(null, null, null);
     }
 
     public Map<String, SQLConstraint> getConstraintMap() {
@@ -78,7 +86,7 @@ public final class SQLTable extends SQLObject {
         constraintMap.clear();
         primaryKeyConstraint = null;
         constraintsLoaded = false;
-        for (SQLField f : listColumns) {
+        for (SQLField f : fields.list) {
         	f.setPrimaryKey(false);
         }
     }
@@ -190,99 +198,93 @@ public final class SQLTable extends SQLObject {
     	return null;
     }
     
-    public void addField(SQLField field) {
-        listColumns.add(field);
-        fieldMap.put(field.getName().toLowerCase(), field);
+    public synchronized void addField(SQLField field) {
+        List<SQLField> list = new ArrayList<SQLField>(fields.list);
+        list.add(field);
+        fields = new Fields(list);
     }
     
-    public void removeSQLField(SQLField field) {
-        listColumns.remove(field);
-        fieldMap.remove(field.getName().toLowerCase());
+    public synchronized void removeSQLField(SQLField field) {
+        List<SQLField> list = new ArrayList<SQLField>(fields.list);
+        list.remove(field);
+        fields = new Fields(list);
     }
     
-    public void clearFields() {
-        listColumns.clear();
-        fieldMap.clear();
+    /**
+     * Replaces all fields at once, concurrent readers see either the old or the new fields
+     * @param newFields
+     */
+    public synchronized void setFields(List<SQLField> newFields) {
+        fields = new Fields(newFields);
+    }
+    
+    public synchronized void clearFields() {
+        fields = Fields.EMPTY;
         fieldsLoaded = false;
     }
     
+    /**
+     * The primary key flag of a field has changed, the name lists of the fields must be built again
+     */
+    synchronized void primaryKeyChanged() {
+        fields = new Fields(fields.list);
+    }
+    
     public void clearIndexes() {
     	listIndexes.clear();
     	indexesLoaded = false;
     }
     
     public int getFieldCount() {
-    	if (loadingColumns) {
-    		return 0;
-    	}
     	if (fieldsLoaded == false) {
             loadColumns();
     	}
-        return listColumns.size();
+        return fields.list.size();
     }
     
     public SQLField getFieldAt(int index) {
         if (fieldsLoaded == false) {
             loadColumns();
         }
-        if (loadingColumns) {
-        	return null;
-        } else {
-            return listColumns.get(index);
-        }
+        return fields.list.get(index);
     }
 
     public SQLField getField(String name) {
         if (fieldsLoaded == false) {
             loadColumns();
         }
-        SQLField field = null;
-        for (int i = 0; i < listColumns.size(); i++) {
-            field = listColumns.get(i);
-            if (name.equalsIgnoreCase(field.getName())) {
-                break;
-            } else {
-                field = null;
-            }
-        }
-        return field;
+        // the field map keys are lower case
+        return fields.map.get(name.toLowerCase());
     }
     
+    /**
+     * @return unmodifiable list of the primary key field names
+     */
     public List<String> getPrimaryKeyFieldNames() {
         if (fieldsLoaded == false) {
             loadColumns();
         }
-    	List<String> names = new ArrayList<>();
-    	for (SQLField field : listColumns) {
-    		if (field.isPrimaryKey()) {
-        		names.add(field.getName());
-    		}
-    	}
-    	return names;
+    	return fields.primaryKeyNames;
     }
     
+    /**
+     * @return unmodifiable list of the field names which are not part of the primary key
+     */
     public List<String> getNonPrimaryKeyFieldNames() {
         if (fieldsLoaded == false) {
             loadColumns();
         }
-    	List<String> names = new ArrayList<>();
-    	for (SQLField field : listColumns) {
-    		if (field.isPrimaryKey() == false) {
-        		names.add(field.getName());
-    		}
-    	}
-    	return names;
+    	return fields.nonPrimaryKeyNames;
     }
 
+    /**
+     * @return unmodifiable list of all field names
+     */
     public List<String> getFieldNames() {
         if (fieldsLoaded == false) {
             loadColumns();
         }
-    	List<String> names = new ArrayList<String>();
-    	for (SQLField field : listColumns) {
-    		names.add(field.getName());
-    	}
-    	return names;
+    	return fields.names;
     }
     
     public boolean isReferencingByForeignKeys() {
@@ -382,8 +384,9 @@ public final class SQLTable extends SQLObject {
     public boolean hasPrimaryKeyFields() {
         SQLField field;
         boolean hasPrimaryKeyField = false;
-        for (int i = 0; i < listColumns.size(); i++) {
-            field = listColumns.get(i);
+        List<SQLField> list = fields.list;
+        for (int i = 0; i < list.size(); i++) {
+            field = list.get(i);
             if (field.isPrimaryKey()) {
                 hasPrimaryKeyField = true;
                 break;
@@ -423,6 +426,21 @@ public final class SQLTable extends SQLObject {
         type = string;
     }
 
+    /**
+     * @return the profile of this table or if not set the profile of the model
+     */
+    public MetadataLoadProfile getLoadProfile() {
+    	if (loadProfile != null) {
+    		return loadProfile;
+    	} else {
+    		return getModel().getLoadProfile();
+    	}
+    }
+    
+    public void setLoadProfile(MetadataLoadProfile loadProfile) {
+    	this.loadProfile = loadProfile;
+    }
+
     public void loadColumns() {
         fieldsLoaded = getModel().loadColumns(this);
     }
@@ -505,4 +523,87 @@ public final class SQLTable extends SQLObject {
 		this.countPartitions = countPartitions;
 	}
 	
+	/**
+	 * Sets the partitioning of the table, the count of partitions is set to the number of partitions
+	 * @param partitioningType e.g. RANGE, LIST, HASH or null if the table is not partitioned
+	 * @param keyColumns the partitioning key columns in their order
+	 * @param partitions the partitions ordered by position
+	 */
+	public void setPartitioning(String partitioningType, List<String> keyColumns, List<SQLPartition> partitions) {
+		this.partitioningType = partitioningType;
+		if (keyColumns != null) {
+			this.partitionKeyColumns = Collections.unmodifiableList(new ArrayList<String>(keyColumns));
+		} else {
+			this.partitionKeyColumns = Collections.emptyList();
+		}
+		if (partitions != null) {
+			this.partitions = Collections.unmodifiableList(new ArrayList<SQLPartition>(partitions));
+		} else {
+			this.partitions = Collections.emptyList();
+		}
+		this.countPartitions = this.partitions.size();
+	}
+	
+	public boolean isPartitioned() {
+		return partitioningType != null;
+	}
+
+	/**
+	 * @return RANGE, LIST, HASH, ... or null if the table is not partitioned
+	 */
+	public String getPartitioningType() {
+		return partitioningType;
+	}
+
+	/**
+	 * @return unmodifiable list of the partitioning key columns
+	 */
+	public List<String> getPartitionKeyColumns() {
+		return partitionKeyColumns;
+	}
+
+	/**
+	 * @return unmodifiable list of the partitions ordered by position
+	 */
+	public List<SQLPartition> getPartitions() {
+		return partitions;
+	}
+	
+	/**
+	 * Immutable list and lookup map of the fields
+	 */
+	private static final class Fields {
+		
+		static final Fields EMPTY = new Fields(Collections.<SQLField>emptyList());
+		final List<SQLField> list;
+		// the keys are lower case
+		final Map<String, SQLField> map;
+		// the name lists belong to the snapshot, therefore a reader cannot combine them with other fields
+		final List<String> names;
+		final List<String> primaryKeyNames;
+		final List<String> nonPrimaryKeyNames;
+		
+		Fields(List<SQLField> fields) {
+			list = Collections.unmodifiableList(new ArrayList<SQLField>(fields));
+			Map<String, SQLField> m = new HashMap<String, SQLField>();
+			List<String> all = new ArrayList<String>();
+			List<String> pk = new ArrayList<String>();
+			List<String> nonPk = new ArrayList<String>();
+			for (SQLField field : list) {
+				m.put(field.getName().toLowerCase(), field);
+				all.add(field.getName());
+				if (field.isPrimaryKey()) {
+					pk.add(field.getName());
+				} else {
+					nonPk.add(field.getName());
+				}
+			}
+			map = m;
+			names = Collections.unmodifiableList(all);
+			primaryKeyNames = Collections.unmodifiableList(pk);
+			nonPrimaryKeyNames = Collections.unmodifiableList(nonPk);
+		}
+		
+	}
+
 }
@@ -0,0 +1,252 @@
+package de.jlo.datamodel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable copy of the loaded meta data of a table.
+ * A snapshot does not belong to a data model and can be shared between threads.
+ * Use restore() to create a new SQLTable within a data model.
+ *
+ * @author jan.lolling@gmail.com
+ */
+public final class SQLTableSnapshot {
+
+	private final String schemaName;
+	private final String tableName;
+	private final String type;
+	private final String comment;
+	private final List<FieldData> fields;
+	private final List<ConstraintData> constraints;
+	private final List<IndexData> indexes;
+	private final boolean constraintsLoaded;
+	private final boolean indexesLoaded;
+	private final String partitioningType;
+	private final List<String> partitionKeyColumns;
+	private final List<SQLPartition> partitions;
+
+	private SQLTableSnapshot(SQLTable table) {
+		this.schemaName = table.getSchema().getName();
+		this.tableName = table.getName();
+		this.type = table.getType();
+		this.comment = table.getComment();
+		List<FieldData> fieldList = new ArrayList<FieldData>();
+		for (int i = 0, n = table.getFieldCount(); i < n; i++) {
+			fieldList.add(new FieldData(table.getFieldAt(i)));
+		}
+		this.fields = Collections.unmodifiableList(fieldList);
+		List<ConstraintData> constraintList = new ArrayList<ConstraintData>();
+		for (SQLConstraint c : table.getConstraints()) {
+			constraintList.add(new ConstraintData(c));
+		}
+		this.constraints = Collections.unmodifiableList(constraintList);
+		List<IndexData> indexList = new ArrayList<IndexData>();
+		for (SQLIndex index : table.getIndexes()) {
+			indexList.add(new IndexData(index));
+		}
+		this.indexes = Collections.unmodifiableList(indexList);
+		this.constraintsLoaded = table.isConstraintsLoadFinished();
+		this.indexesLoaded = table.isIndexesLoadFinished();
+		// both lists are already unmodifiable and the partitions are immutable
+		this.partitioningType = table.getPartitioningType();
+		this.partitionKeyColumns = table.getPartitionKeyColumns();
+		this.partitions = table.getPartitions();
+	}
+
+	/**
+	 * Creates a snapshot of an already loaded table
+	 * @param table with loaded fields
+	 * @return the snapshot
+	 */
+	public static SQLTableSnapshot create(SQLTable table) {
+		if (table == null) {
+			throw new IllegalArgumentException("table cannot be null");
+		}
+		if (table.isFieldsLoaded() == false) {
+			throw new IllegalStateException("Table " + table.getAbsoluteName() + " has no loaded fields.");
+		}
+		return new SQLTableSnapshot(table);
+	}
+
+	/**
+	 * Creates a new table object with the meta data of this snapshot
+	 * and adds the table to the given schema
+	 * @param schema the schema of the new table
+	 * @return a new table which can be changed independently from the snapshot
+	 */
+	public SQLTable restore(SQLSchema schema) {
+		SQLDataModel model = schema.getModel();
+		SQLTable table = new SQLTable(model, schema, tableName);
+		table.setType(type);
+		table.setComment(comment);
+		for (FieldData fd : fields) {
+			table.addField(fd.restore(model, table));
+		}
+		// mark as loaded before adding constraints, they lookup the fields
+		table.setFieldsLoaded();
+		for (ConstraintData cd : constraints) {
+			cd.restore(model, table);
+		}
+		if (constraintsLoaded) {
+			table.setConstraintsLoaded();
+		}
+		for (IndexData id : indexes) {
+			table.addIndex(id.restore(model, table));
+		}
+		if (indexesLoaded) {
+			table.setIndexesLoaded();
+		}
+		table.setPartitioning(partitioningType, partitionKeyColumns, partitions);
+		schema.addTable(table);
+		return table;
+	}
+
+	public String getSchemaName() {
+		return schemaName;
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	public int getFieldCount() {
+		return fields.size();
+	}
+
+	private static final class FieldData {
+
+		private final String name;
+		private final int type;
+		private final String typeName;
+		private final String typeSQLCode;
+		private final int basicType;
+		private final int length;
+		private final int decimalDigits;
+		private final int ordinalPosition;
+		private final boolean nullValueAllowed;
+		private final String comment;
+		private final String defaultValue;
+		private final boolean serial;
+
+		private FieldData(SQLField field) {
+			name = field.getName();
+			type = field.getType();
+			typeName = field.getTypeName();
+			typeSQLCode = field.getTypeSQLCode();
+			basicType = field.getBasicType();
+			length = field.getLength();
+			decimalDigits = field.getDecimalDigits();
+			ordinalPosition = field.getOrdinalPosition();
+			nullValueAllowed = field.isNullValueAllowed();
+			comment = field.getComment();
+			defaultValue = field.getDefaultValue();
+			serial = field.isSerial();
+		}
+
+		private SQLField restore(SQLDataModel model, SQLTable table) {
+			SQLField field = new SQLField(model, table, name);
+			field.setType(type);
+			field.setTypeName(typeName);
+			field.setTypeSQLCode(typeSQLCode);
+			field.setBasicType(basicType);
+			field.setLength(length);
+			field.setDecimalDigits(decimalDigits);
+			field.setOrdinalPosition(ordinalPosition);
+			field.setNullValueAllowed(nullValueAllowed);
+			field.setComment(comment);
+			field.setDefaultValue(defaultValue);
+			field.setSerial(serial);
+			return field;
+		}
+
+	}
+
+	private static final class ConstraintData {
+
+		private final String name;
+		private final int type;
+		private final String referencedTableName;
+		private final List<String[]> columns;
+		private final List<Integer> columnIndexes;
+
+		private ConstraintData(SQLConstraint constraint) {
+			name = constraint.getName();
+			type = constraint.getType();
+			referencedTableName = constraint.getReferencedTableName();
+			List<String[]> columnList = new ArrayList<String[]>();
+			List<Integer> indexList = new ArrayList<Integer>();
+			if (type == SQLConstraint.FOREIGN_KEY) {
+				for (SQLConstraint.FkPkColumnPair pair : constraint.getFkColumnPairList()) {
+					columnList.add(new String[] {pair.getFkColumnName(), pair.getPkColumnName()});
+					indexList.add(pair.getIndex());
+				}
+			} else {
+				for (SQLConstraint.PkColumn col : constraint.getPkColumnList()) {
+					columnList.add(new String[] {col.getPkColumnName()});
+					indexList.add(col.getIndex());
+				}
+			}
+			columns = Collections.unmodifiableList(columnList);
+			columnIndexes = Collections.unmodifiableList(indexList);
+		}
+
+		private void restore(SQLDataModel model, SQLTable table) {
+			SQLConstraint constraint = new SQLConstraint(model, table, type, name);
+			if (type == SQLConstraint.PRIMARY_KEY) {
+				table.setPrimaryKeyConstraint(constraint);
+			} else {
+				table.addConstraint(constraint);
+			}
+			constraint.setReferencedTableName(referencedTableName);
+			for (int i = 0; i < columns.size(); i++) {
+				String[] col = columns.get(i);
+				if (type == SQLConstraint.FOREIGN_KEY) {
+					constraint.addForeignKeyColumnNamePair(col[0], col[1], columnIndexes.get(i));
+				} else {
+					constraint.addPrimaryKeyFieldName(col[0], columnIndexes.get(i));
+				}
+			}
+		}
+
+	}
+
+	private static final class IndexData {
+
+		private final String name;
+		private final int type;
+		private final boolean unique;
+		private final int cardinality;
+		private final String filterCondition;
+		private final List<SQLIndex.IndexField> fields;
+
+		private IndexData(SQLIndex index) {
+			name = index.getName();
+			type = index.getType();
+			unique = index.isUnique();
+			cardinality = index.getCardinality();
+			filterCondition = index.getFilterCondition();
+			List<SQLIndex.IndexField> list = new ArrayList<SQLIndex.IndexField>();
+			for (int i = 0, n = index.getCountFields(); i < n; i++) {
+				SQLIndex.IndexField f = index.getFieldAt(i);
+				// IndexField is mutable, keep our own copy
+				list.add(new SQLIndex.IndexField(f.getName(), f.getOrdinalPosition(), f.getSortOrder()));
+			}
+			fields = Collections.unmodifiableList(list);
+		}
+
+		private SQLIndex restore(SQLDataModel model, SQLTable table) {
+			SQLIndex index = new SQLIndex(model, name, table);
+			index.setType(type);
+			index.setUnique(unique);
+			index.setCardinality(cardinality);
+			index.setFilterCondition(filterCondition);
+			for (SQLIndex.IndexField f : fields) {
+				index.addIndexField(f.getName(), f.getOrdinalPosition(), f.getSortOrder());
+			}
+			return index;
+		}
+
+	}
+
+}
@@ -0,0 +1,31 @@
+package de.jlo.datamodel;
+
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Calls the listeners within the Swing event dispatch thread.
+ * Only for GUI applications, batch processes should use the direct or the asynchronous dispatcher.
+ * 
+ * @author jan.lolling@gmail.com
+ */
+public final class SwingDatamodelEventDispatcher implements DatamodelEventDispatcher {
+
+	@Override
+	public void dispatch(final DatamodelEvent event, final List<DatamodelListener> listeners) {
+		if (SwingUtilities.isEventDispatchThread()) {
+			DirectDatamodelEventDispatcher.INSTANCE.dispatch(event, listeners);
+		} else {
+			SwingUtilities.invokeLater(new Runnable() {
+				
+				@Override
+				public void run() {
+					DirectDatamodelEventDispatcher.INSTANCE.dispatch(event, listeners);
+				}
+				
+			});
+		}
+	}
+
+}
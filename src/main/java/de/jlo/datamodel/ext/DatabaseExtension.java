@@ -54,6 +54,16 @@ public interface DatabaseExtension {
 	 */
 	public boolean loadTables(Connection conn, SQLSchema schema) throws SQLException;
 	
+	/**
+	 * loads columns, primary key and indexes of a table with vendor specific queries
+	 * @param conn
+	 * @param table (must not be a view)
+	 * @param withIndexes if false the indexes will not be loaded
+	 * @param onlyUniqueIndexes if true only unique indexes will be loaded
+	 * @return true if successfully loaded, otherwise false if the generic method should be used
+	 */
+	public boolean loadTableDetails(Connection conn, SQLTable table, boolean withIndexes, boolean onlyUniqueIndexes) throws SQLException;
+	
 	/**
 	 * sets the code into the view
 	 * @param table (must be of type VIEW)
@@ -336,6 +336,12 @@ public class GenericDatabaseExtension implements DatabaseExtension {
 		}
 	}
 
+	@Override
+	public boolean loadTableDetails(Connection conn, SQLTable table, boolean withIndexes, boolean onlyUniqueIndexes) throws SQLException {
+		// use the generic DatabaseMetaData methods
+		return false;
+	}
+
 	@Override
 	public boolean loadProcedures(Connection conn, SQLSchema schema) throws SQLException {
 		DatabaseMetaData dbmd = conn.getMetaData();
@@ -1,9 +1,12 @@
 package de.jlo.datamodel.ext.impl;
 
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -11,6 +14,10 @@ import org.apache.log4j.Logger;
 
 import de.jlo.datamodel.BasicDataType;
 import de.jlo.datamodel.Field;
+import de.jlo.datamodel.SQLConstraint;
+import de.jlo.datamodel.SQLField;
+import de.jlo.datamodel.SQLIndex;
+import de.jlo.datamodel.SQLPartition;
 import de.jlo.datamodel.SQLProcedure;
 import de.jlo.datamodel.SQLSchema;
 import de.jlo.datamodel.SQLSequence;
@@ -23,6 +30,39 @@ public class OracleExtension extends GenericDatabaseExtension {
 
 	private static Logger logger = Logger.getLogger(OracleExtension.class);
 	private static final String name = "Oracle Extension";
+	private static final int ORACLE_TIMESTAMP_TZ = -101;
+	private static final int ORACLE_TIMESTAMP_LTZ = -102;
+	private static final String SQL_TABLE_COLUMNS = 
+			"select COLUMN_NAME, DATA_TYPE, DATA_LENGTH, DATA_PRECISION, DATA_SCALE, CHAR_LENGTH, NULLABLE, COLUMN_ID\n"
+			+ "from ALL_TAB_COLUMNS\n"
+			+ "where OWNER = ? and TABLE_NAME = ?\n"
+			+ "order by COLUMN_ID";
+	private static final String SQL_PK = 
+			"select 'P' as KEY_TYPE, c.CONSTRAINT_NAME as KEY_NAME, cc.COLUMN_NAME, cc.POSITION, null as DESCEND, 'UNIQUE' as UNIQUENESS, 0 as DISTINCT_KEYS\n"
+			+ "from ALL_CONSTRAINTS c\n"
+			+ "join ALL_CONS_COLUMNS cc on cc.OWNER = c.OWNER and cc.CONSTRAINT_NAME = c.CONSTRAINT_NAME and cc.TABLE_NAME = c.TABLE_NAME\n"
+			+ "where c.OWNER = ? and c.TABLE_NAME = ? and c.CONSTRAINT_TYPE = 'P'\n";
+	private static final String SQL_INDEXES = 
+			"select 'I' as KEY_TYPE, i.INDEX_NAME as KEY_NAME, ic.COLUMN_NAME, ic.COLUMN_POSITION as POSITION, ic.DESCEND, i.UNIQUENESS, i.DISTINCT_KEYS\n"
+			+ "from ALL_INDEXES i\n"
+			+ "join ALL_IND_COLUMNS ic on ic.INDEX_OWNER = i.OWNER and ic.INDEX_NAME = i.INDEX_NAME\n"
+			+ "where i.TABLE_OWNER = ? and i.TABLE_NAME = ? and i.INDEX_TYPE not like 'FUNCTION-BASED%'\n";
+	// primary key rows first, the index rows are ordered by name and position
+	private static final String SQL_TABLE_PK = SQL_PK + "order by POSITION";
+	private static final String SQL_TABLE_PK_AND_INDEXES = SQL_PK + "union all\n" + SQL_INDEXES + "order by 1 desc, 2, 4";
+	private static final String SQL_TABLE_PK_AND_UNIQUE_INDEXES = SQL_PK + "union all\n" + SQL_INDEXES + "and i.UNIQUENESS = 'UNIQUE'\norder by 1 desc, 2, 4";
+	private static final String SQL_PARTITION_KEY_COLUMNS = 
+			"select pt.PARTITIONING_TYPE, kc.COLUMN_NAME\n"
+			+ "from ALL_PART_TABLES pt\n"
+			+ "join ALL_PART_KEY_COLUMNS kc on kc.OWNER = pt.OWNER and kc.NAME = pt.TABLE_NAME and kc.OBJECT_TYPE = 'TABLE'\n"
+			+ "where pt.OWNER = ? and pt.TABLE_NAME = ?\n"
+			+ "order by kc.COLUMN_POSITION";
+	// HIGH_VALUE is a LONG column and must be read in the order of the select list
+	private static final String SQL_PARTITIONS = 
+			"select PARTITION_NAME, PARTITION_POSITION, HIGH_VALUE\n"
+			+ "from ALL_TAB_PARTITIONS\n"
+			+ "where TABLE_OWNER = ? and TABLE_NAME = ?\n"
+			+ "order by PARTITION_POSITION";
 
 	public OracleExtension() {
 		super();
@@ -70,6 +110,211 @@ public class OracleExtension extends GenericDatabaseExtension {
 		return sb.toString();
 	}
 
+	@Override
+	public boolean loadTableDetails(Connection conn, SQLTable table, boolean withIndexes, boolean onlyUniqueIndexes) throws SQLException {
+		String owner = table.getSchema().getKey();
+		if (owner == null) {
+			return false;
+		}
+		// the fields are replaced as a whole, concurrent readers must not see an empty table
+		loadTableColumns(conn, table, owner);
+		table.clearConstraints();
+		table.clearIndexes();
+		table.setPartitioning(null, null, null);
+		loadTableKeys(conn, table, owner, withIndexes, onlyUniqueIndexes);
+		if (table.getLoadProfile().isLoadPartitions()) {
+			loadPartitions(conn, table, owner);
+		}
+		return true;
+	}
+	
+	private void loadPartitions(Connection conn, SQLTable table, String owner) throws SQLException {
+		String partitioningType = null;
+		List<String> keyColumns = new ArrayList<String>();
+		PreparedStatement ps = conn.prepareStatement(SQL_PARTITION_KEY_COLUMNS);
+		table.getModel().incrementMetadataRoundTrips();
+		try {
+			ps.setString(1, owner);
+			ps.setString(2, table.getName());
+			ResultSet rs = ps.executeQuery();
+			while (rs.next()) {
+				partitioningType = rs.getString("PARTITIONING_TYPE");
+				keyColumns.add(rs.getString("COLUMN_NAME"));
+			}
+			rs.close();
+		} finally {
+			ps.close();
+		}
+		if (partitioningType == null) {
+			// not partitioned, no need to ask for partitions
+			return;
+		}
+		List<SQLPartition> partitions = new ArrayList<SQLPartition>();
+		ps = conn.prepareStatement(SQL_PARTITIONS);
+		table.getModel().incrementMetadataRoundTrips();
+		try {
+			ps.setString(1, owner);
+			ps.setString(2, table.getName());
+			ResultSet rs = ps.executeQuery();
+			while (rs.next()) {
+				String name = rs.getString("PARTITION_NAME");
+				int position = rs.getInt("PARTITION_POSITION");
+				String highValue = rs.getString("HIGH_VALUE");
+				partitions.add(new SQLPartition(name, position, highValue != null && highValue.trim().isEmpty() == false ? highValue.trim() : null));
+			}
+			rs.close();
+		} finally {
+			ps.close();
+		}
+		table.setPartitioning(partitioningType, keyColumns, partitions);
+	}
+	
+	private void loadTableColumns(Connection conn, SQLTable table, String owner) throws SQLException {
+		List<SQLField> fields = new ArrayList<SQLField>();
+		PreparedStatement ps = conn.prepareStatement(SQL_TABLE_COLUMNS);
+		table.getModel().incrementMetadataRoundTrips();
+		try {
+			ps.setString(1, owner);
+			ps.setString(2, table.getName());
+			ResultSet rs = ps.executeQuery();
+			while (rs.next()) {
+				if (Thread.currentThread().isInterrupted()) {
+					break;
+				}
+				String dataType = rs.getString("DATA_TYPE");
+				SQLField field = new SQLField(table.getModel(), table, rs.getString("COLUMN_NAME"));
+				field.setType(getJdbcType(dataType));
+				field.setTypeName(dataType);
+				field.setLength(getColumnSize(dataType, rs));
+				field.setDecimalDigits(rs.getInt("DATA_SCALE"));
+				field.setOrdinalPosition(rs.getInt("COLUMN_ID"));
+				field.setNullValueAllowed("N".equals(rs.getString("NULLABLE")) == false);
+				setupDataType(field);
+				fields.add(field);
+			}
+			rs.close();
+		} finally {
+			ps.close();
+		}
+		table.setFields(fields);
+	}
+	
+	private void loadTableKeys(Connection conn, SQLTable table, String owner, boolean withIndexes, boolean onlyUniqueIndexes) throws SQLException {
+		String sql = SQL_TABLE_PK;
+		if (withIndexes) {
+			sql = onlyUniqueIndexes ? SQL_TABLE_PK_AND_UNIQUE_INDEXES : SQL_TABLE_PK_AND_INDEXES;
+		}
+		PreparedStatement ps = conn.prepareStatement(sql);
+		table.getModel().incrementMetadataRoundTrips();
+		try {
+			ps.setString(1, owner);
+			ps.setString(2, table.getName());
+			if (withIndexes) {
+				ps.setString(3, owner);
+				ps.setString(4, table.getName());
+			}
+			ResultSet rs = ps.executeQuery();
+			while (rs.next()) {
+				String keyType = rs.getString("KEY_TYPE");
+				String keyName = rs.getString("KEY_NAME");
+				String columnName = rs.getString("COLUMN_NAME");
+				int position = rs.getInt("POSITION");
+				if ("P".equals(keyType)) {
+					SQLConstraint constraint = table.getPrimaryKeyConstraint();
+					if (constraint == null) {
+						constraint = new SQLConstraint(table.getModel(), table, SQLConstraint.PRIMARY_KEY, keyName);
+						table.setPrimaryKeyConstraint(constraint);
+					}
+					constraint.addPrimaryKeyFieldName(columnName, position);
+				} else {
+					SQLIndex index = table.getIndexByName(keyName);
+					if (index == null) {
+						index = new SQLIndex(table.getModel(), keyName, table);
+						index.setUnique("UNIQUE".equals(rs.getString("UNIQUENESS")));
+						index.setType(DatabaseMetaData.tableIndexOther);
+						index.setCardinality(rs.getInt("DISTINCT_KEYS"));
+						table.addIndex(index);
+					}
+					index.addIndexField(columnName, position, "DESC".equals(rs.getString("DESCEND")) ? "D" : "A");
+				}
+			}
+			rs.close();
+		} finally {
+			ps.close();
+		}
+	}
+	
+	/**
+	 * Maps the Oracle data type to the java.sql.Types value the driver reports in DatabaseMetaData.getColumns 
+	 * @param dataType ALL_TAB_COLUMNS.DATA_TYPE
+	 * @return type
+	 */
+	static int getJdbcType(String dataType) {
+		if (dataType == null) {
+			return Types.OTHER;
+		} else if (dataType.equals("VARCHAR2")) {
+			return Types.VARCHAR;
+		} else if (dataType.equals("NUMBER")) {
+			return Types.DECIMAL;
+		} else if (dataType.equals("DATE")) {
+			return Types.TIMESTAMP;
+		} else if (dataType.equals("CHAR")) {
+			return Types.CHAR;
+		} else if (dataType.equals("NVARCHAR2")) {
+			return Types.NVARCHAR;
+		} else if (dataType.equals("NCHAR")) {
+			return Types.NCHAR;
+		} else if (dataType.equals("FLOAT")) {
+			return Types.FLOAT;
+		} else if (dataType.equals("BINARY_FLOAT")) {
+			return Types.REAL;
+		} else if (dataType.equals("BINARY_DOUBLE")) {
+			return Types.DOUBLE;
+		} else if (dataType.equals("CLOB")) {
+			return Types.CLOB;
+		} else if (dataType.equals("NCLOB")) {
+			return Types.NCLOB;
+		} else if (dataType.equals("BLOB")) {
+			return Types.BLOB;
+		} else if (dataType.equals("RAW")) {
+			return Types.VARBINARY;
+		} else if (dataType.equals("LONG RAW")) {
+			return Types.LONGVARBINARY;
+		} else if (dataType.equals("LONG")) {
+			return Types.LONGVARCHAR;
+		} else if (dataType.equals("ROWID") || dataType.equals("UROWID")) {
+			return Types.ROWID;
+		} else if (dataType.equals("XMLTYPE")) {
+			return Types.SQLXML;
+		} else if (dataType.startsWith("TIMESTAMP")) {
+			if (dataType.endsWith("WITH LOCAL TIME ZONE")) {
+				return ORACLE_TIMESTAMP_LTZ;
+			} else if (dataType.endsWith("WITH TIME ZONE")) {
+				return ORACLE_TIMESTAMP_TZ;
+			} else {
+				return Types.TIMESTAMP;
+			}
+		} else {
+			return Types.OTHER;
+		}
+	}
+	
+	private static int getColumnSize(String dataType, ResultSet rs) throws SQLException {
+		// same rules as the Oracle driver uses for COLUMN_SIZE
+		int precision = rs.getInt("DATA_PRECISION");
+		if (rs.wasNull() == false) {
+			return precision;
+		}
+		if ("NUMBER".equals(dataType)) {
+			rs.getInt("DATA_SCALE");
+			return rs.wasNull() ? 0 : 38;
+		} else if ("CHAR".equals(dataType) || "VARCHAR2".equals(dataType) || "NCHAR".equals(dataType) || "NVARCHAR2".equals(dataType)) {
+			return rs.getInt("CHAR_LENGTH");
+		} else {
+			return rs.getInt("DATA_LENGTH");
+		}
+	}
+
 	@Override
 	public String setupProcedureSQLCode(Connection conn, SQLProcedure proc) {
 		StringBuilder sb = new StringBuilder();
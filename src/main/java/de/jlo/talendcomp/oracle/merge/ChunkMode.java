@@ -0,0 +1,38 @@
+package de.jlo.talendcomp.oracle.merge;
+
+/**
+ * Defines how the source select is split into chunks
+ * @author jan.lolling@gmail.com
+ *
+ */
+public enum ChunkMode {
+	
+	/**
+	 * one merge statement for the whole source
+	 */
+	NONE,
+	
+	/**
+	 * chunks are the buckets of ora_hash(chunk column, chunk count - 1)
+	 */
+	ORA_HASH,
+	
+	/**
+	 * chunks are equal sized ranges between min and max of a numeric chunk column
+	 */
+	KEY_RANGE,
+	
+	/**
+	 * one chunk per partition of a range or list partitioned target table, 
+	 * the merge uses the partition extended table name
+	 */
+	PARTITION;
+	
+	public static ChunkMode parse(String mode) {
+		if (mode == null || mode.trim().isEmpty()) {
+			return NONE;
+		}
+		return valueOf(mode.trim().toUpperCase());
+	}
+
+}
@@ -0,0 +1,106 @@
+package de.jlo.talendcomp.oracle.merge;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Executes the chunks of a merge. Every chunk is committed separately.
+ * If more than one thread is configured every thread uses its own connection 
+ * from the connection provider.
+ * @author jan.lolling@gmail.com
+ *
+ */
+class ChunkedMergeExecutor {
+	
+	private final OracleMerge merge;
+	private final List<MergeChunk> chunks;
+	private final AtomicInteger nextChunk = new AtomicInteger(0);
+	private final AtomicInteger countMerged = new AtomicInteger(0);
+	private final AtomicInteger countFinished = new AtomicInteger(0);
+	private final AtomicReference<Exception> error = new AtomicReference<Exception>();
+	
+	ChunkedMergeExecutor(OracleMerge merge, List<MergeChunk> chunks) {
+		this.merge = merge;
+		this.chunks = chunks;
+	}
+	
+	int execute(Connection mainConnection, ConnectionProvider connectionProvider, int numberThreads) throws Exception {
+		if (numberThreads > chunks.size()) {
+			numberThreads = chunks.size();
+		}
+		if (numberThreads <= 1 || connectionProvider == null) {
+			// all chunks one by one within the main connection
+			processChunks(mainConnection);
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(numberThreads);
+			try {
+				List<Future<?>> futures = new ArrayList<Future<?>>();
+				for (int i = 0; i < numberThreads; i++) {
+					futures.add(executor.submit(new Runnable() {
+						
+						@Override
+						public void run() {
+							Connection conn = null;
+							try {
+								conn = connectionProvider.createConnection();
+								conn.setAutoCommit(false);
+								processChunks(conn);
+							} catch (Exception e) {
+								error.compareAndSet(null, e);
+							} finally {
+								if (conn != null) {
+									merge.releaseConnection(conn);
+									try {
+										conn.close();
+									} catch (Exception e) {
+										// ignore
+									}
+								}
+							}
+						}
+						
+					}));
+				}
+				for (Future<?> f : futures) {
+					f.get();
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+		Exception e = error.get();
+		if (e != null) {
+			throw e;
+		}
+		return countMerged.get();
+	}
+	
+	private void processChunks(Connection conn) {
+		while (error.get() == null) {
+			int index = nextChunk.getAndIncrement();
+			if (index >= chunks.size()) {
+				break;
+			}
+			MergeChunk chunk = chunks.get(index);
+			if (merge.isCancelled()) {
+				error.compareAndSet(null, new Exception("Merge cancelled before " + chunk));
+				break;
+			}
+			try {
+				int count = merge.executeChunk(conn, chunk);
+				chunk.setCountMerged(count);
+				countMerged.addAndGet(count);
+				merge.fireProgress(chunk + " finished", countFinished.incrementAndGet(), chunks.size());
+			} catch (Exception e) {
+				error.compareAndSet(null, new Exception("Merge " + chunk + " failed: " + e.getMessage(), e));
+			}
+		}
+	}
+
+}
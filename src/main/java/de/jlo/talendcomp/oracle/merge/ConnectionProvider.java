@@ -0,0 +1,20 @@
+package de.jlo.talendcomp.oracle.merge;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Provides additional connections for the chunks running in parallel
+ * @author jan.lolling@gmail.com
+ *
+ */
+public interface ConnectionProvider {
+	
+	/**
+	 * Creates a new connection. The caller closes the connection.
+	 * @return connection
+	 * @throws SQLException
+	 */
+	Connection createConnection() throws SQLException;
+
+}
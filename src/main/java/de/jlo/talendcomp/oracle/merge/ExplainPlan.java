@@ -0,0 +1,71 @@
+package de.jlo.talendcomp.oracle.merge;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Execution plan of the merge statement
+ * @author jan.lolling@gmail.com
+ *
+ */
+public class ExplainPlan {
+	
+	private final List<PlanStep> steps = new ArrayList<PlanStep>();
+	
+	void addStep(PlanStep step) {
+		steps.add(step);
+	}
+	
+	public List<PlanStep> getSteps() {
+		return Collections.unmodifiableList(steps);
+	}
+	
+	/**
+	 * @return the cost of the top level operation or null if not estimated
+	 */
+	public Long getCost() {
+		if (steps.isEmpty()) {
+			return null;
+		}
+		return steps.get(0).getCost();
+	}
+	
+	/**
+	 * @return the estimated number of rows of the top level operation or null if not estimated
+	 */
+	public Long getCardinality() {
+		if (steps.isEmpty()) {
+			return null;
+		}
+		return steps.get(0).getCardinality();
+	}
+	
+	/**
+	 * Checks if the plan contains a full scan of the given table
+	 * @param owner schema of the table, if null any schema matches
+	 * @param tableName
+	 * @return the full scan step or null
+	 */
+	public PlanStep getFullTableScan(String owner, String tableName) {
+		for (PlanStep step : steps) {
+			if (step.isFullTableScan() && tableName.equalsIgnoreCase(step.getObjectName())) {
+				if (owner == null || step.getObjectOwner() == null || owner.equalsIgnoreCase(step.getObjectOwner())) {
+					return step;
+				}
+			}
+		}
+		return null;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (PlanStep step : steps) {
+			sb.append(step.toString());
+			sb.append("\n");
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,104 @@
+package de.jlo.talendcomp.oracle.merge;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.util.Properties;
+
+/**
+ * Keeps the watermarks in a local properties file.
+ * The file is replaced by a renamed temporary file, therefore an aborted write does not destroy the last watermarks.
+ * @author jan.lolling@gmail.com
+ *
+ */
+public class FileWatermarkStore implements WatermarkStore {
+
+	private final File file;
+
+	public FileWatermarkStore(String path) {
+		if (path == null || path.trim().isEmpty()) {
+			throw new IllegalArgumentException("path cannot be null or empty");
+		}
+		this.file = new File(path.trim());
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	@Override
+	public synchronized Object read(String key) throws Exception {
+		return decode(load().getProperty(key));
+	}
+
+	@Override
+	public synchronized void write(String key, Object value) throws Exception {
+		Properties properties = load();
+		if (value == null) {
+			properties.remove(key);
+		} else {
+			properties.setProperty(key, encode(value));
+		}
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (dir.exists() == false) {
+			dir.mkdirs();
+		}
+		File tmp = new File(dir, file.getName() + ".tmp");
+		OutputStream out = new FileOutputStream(tmp);
+		try {
+			properties.store(out, "watermarks of tOracleMergeELT");
+		} finally {
+			out.close();
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private Properties load() throws Exception {
+		Properties properties = new Properties();
+		if (file.exists()) {
+			InputStream in = new FileInputStream(file);
+			try {
+				properties.load(in);
+			} finally {
+				in.close();
+			}
+		}
+		return properties;
+	}
+
+	/**
+	 * The type prefix keeps the class of the value: N: number, T: timestamp, S: string
+	 */
+	private static String encode(Object value) {
+		if (value instanceof BigDecimal) {
+			return "N:" + ((BigDecimal) value).toPlainString();
+		} else if (value instanceof Number) {
+			return "N:" + value.toString();
+		} else if (value instanceof Timestamp) {
+			return "T:" + value.toString();
+		} else {
+			return "S:" + value.toString();
+		}
+	}
+
+	private static Object decode(String s) {
+		if (s == null || s.length() < 2) {
+			return null;
+		}
+		String value = s.substring(2);
+		if (s.startsWith("N:")) {
+			return new BigDecimal(value);
+		} else if (s.startsWith("T:")) {
+			return Timestamp.valueOf(value);
+		} else {
+			return value;
+		}
+	}
+
+}
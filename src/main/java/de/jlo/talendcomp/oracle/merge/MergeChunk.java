@@ -0,0 +1,102 @@
+package de.jlo.talendcomp.oracle.merge;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One part of the source select processed with its own merge statement and commit
+ * @author jan.lolling@gmail.com
+ *
+ */
+public class MergeChunk {
+	
+	private final int index;
+	private final Object[] bindValues;
+	private final String partitionName;
+	private final String sql;
+	private final List<MergeParameter> parameters;
+	private int countMerged = 0;
+	
+	public MergeChunk(int index, Object ... bindValues) {
+		this.index = index;
+		this.bindValues = bindValues;
+		this.partitionName = null;
+		this.sql = null;
+		this.parameters = null;
+	}
+	
+	/**
+	 * Creates a chunk with its own merge statement
+	 * @param index
+	 * @param partitionName the target partition or null if the statement covers the rows outside the known partitions
+	 * @param sql the merge statement of this chunk
+	 * @param parameters the parameters of the statement in bind order
+	 */
+	MergeChunk(int index, String partitionName, String sql, List<MergeParameter> parameters) {
+		this.index = index;
+		this.bindValues = new Object[0];
+		this.partitionName = partitionName;
+		this.sql = sql;
+		this.parameters = Collections.unmodifiableList(new ArrayList<MergeParameter>(parameters));
+	}
+	
+	public int getIndex() {
+		return index;
+	}
+	
+	/**
+	 * Returns a value restricting the source select to this chunk
+	 * @param valueIndex index of the value, ORA_HASH has one value, 
+	 * KEY_RANGE the lower and upper bound and 1 if the chunk takes the null keys
+	 * @return the value
+	 */
+	Object getBindValue(int valueIndex) {
+		return bindValues[valueIndex];
+	}
+
+	/**
+	 * @return the target partition of this chunk or null
+	 */
+	public String getPartitionName() {
+		return partitionName;
+	}
+	
+	/**
+	 * @return the own merge statement of this chunk or null if the chunk uses the statement of the plan
+	 */
+	String getSql() {
+		return sql;
+	}
+	
+	List<MergeParameter> getParameters() {
+		return parameters;
+	}
+
+	public int getCountMerged() {
+		return countMerged;
+	}
+
+	void setCountMerged(int countMerged) {
+		this.countMerged = countMerged;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("chunk #");
+		sb.append(index);
+		if (partitionName != null) {
+			sb.append(" partition ");
+			sb.append(partitionName);
+		} else if (sql != null) {
+			sb.append(" outside of the partitions");
+		}
+		for (Object value : bindValues) {
+			sb.append(" ");
+			sb.append(value);
+		}
+		return sb.toString();
+	}
+
+}
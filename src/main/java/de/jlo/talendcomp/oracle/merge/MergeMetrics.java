@@ -0,0 +1,285 @@
+package de.jlo.talendcomp.oracle.merge;
+
+/**
+ * Timings and statistics of the last merge.
+ * Timings are in nanoseconds, values which are not available are null.
+ * @author jan.lolling@gmail.com
+ *
+ */
+public class MergeMetrics {
+	
+	private long metadataNanos = 0;
+	private int metadataRoundTrips = 0;
+	private long buildNanos = 0;
+	private boolean planCacheHit = false;
+	private long stageNanos = 0;
+	private Integer countStaged = null;
+	private long explainNanos = 0;
+	private long countNanos = 0;
+	private long prepareNanos = 0;
+	private long executeNanos = 0;
+	private long commitNanos = 0;
+	private long elapsedNanos = 0;
+	private int countMerged = 0;
+	private Integer countInserted = null;
+	private Integer countUpdated = null;
+	private Integer countDeleted = null;
+	private Integer countRejected = null;
+	private Long redoSize = null;
+	private Long undoSize = null;
+	
+	/**
+	 * resets all values of the execution, the meta data and build values are kept
+	 */
+	void resetExecution() {
+		stageNanos = 0;
+		countStaged = null;
+		explainNanos = 0;
+		countNanos = 0;
+		prepareNanos = 0;
+		executeNanos = 0;
+		commitNanos = 0;
+		elapsedNanos = 0;
+		countMerged = 0;
+		countInserted = null;
+		countUpdated = null;
+		countDeleted = null;
+		countRejected = null;
+		redoSize = null;
+		undoSize = null;
+	}
+
+	/**
+	 * @return time to resolve and load the target table meta data
+	 */
+	public long getMetadataNanos() {
+		return metadataNanos;
+	}
+
+	void setMetadataNanos(long metadataNanos) {
+		this.metadataNanos = metadataNanos;
+	}
+
+	/**
+	 * @return number of queries sent to the database to load the meta data
+	 */
+	public int getMetadataRoundTrips() {
+		return metadataRoundTrips;
+	}
+
+	void setMetadataRoundTrips(int metadataRoundTrips) {
+		this.metadataRoundTrips = metadataRoundTrips;
+	}
+
+	public long getBuildNanos() {
+		return buildNanos;
+	}
+
+	void setBuildNanos(long buildNanos) {
+		this.buildNanos = buildNanos;
+	}
+
+	/**
+	 * @return true if the merge statement was taken from the plan cache
+	 */
+	public boolean isPlanCacheHit() {
+		return planCacheHit;
+	}
+
+	void setPlanCacheHit(boolean planCacheHit) {
+		this.planCacheHit = planCacheHit;
+	}
+
+	/**
+	 * @return time to load the source into the staging table including index and statistics
+	 */
+	public long getStageNanos() {
+		return stageNanos;
+	}
+
+	void setStageNanos(long stageNanos) {
+		this.stageNanos = stageNanos;
+	}
+
+	/**
+	 * @return number of rows loaded into the staging table or null if the source is not staged
+	 */
+	public Integer getCountStaged() {
+		return countStaged;
+	}
+
+	void setCountStaged(Integer countStaged) {
+		this.countStaged = countStaged;
+	}
+
+	public long getExplainNanos() {
+		return explainNanos;
+	}
+
+	void setExplainNanos(long explainNanos) {
+		this.explainNanos = explainNanos;
+	}
+
+	/**
+	 * @return time of the query counting the changes before the merge (overhead of the count option)
+	 */
+	public long getCountNanos() {
+		return countNanos;
+	}
+
+	void setCountNanos(long countNanos) {
+		this.countNanos = countNanos;
+	}
+
+	public long getPrepareNanos() {
+		return prepareNanos;
+	}
+
+	void setPrepareNanos(long prepareNanos) {
+		this.prepareNanos = prepareNanos;
+	}
+
+	/**
+	 * @return time of the merge statement itself, in chunked mode of all chunks including their commits
+	 */
+	public long getExecuteNanos() {
+		return executeNanos;
+	}
+
+	void setExecuteNanos(long executeNanos) {
+		this.executeNanos = executeNanos;
+	}
+
+	public long getCommitNanos() {
+		return commitNanos;
+	}
+
+	void setCommitNanos(long commitNanos) {
+		this.commitNanos = commitNanos;
+	}
+
+	/**
+	 * @return wall time of execute()
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	void setElapsedNanos(long elapsedNanos) {
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public int getCountMerged() {
+		return countMerged;
+	}
+
+	void setCountMerged(int countMerged) {
+		this.countMerged = countMerged;
+	}
+
+	public Integer getCountInserted() {
+		return countInserted;
+	}
+
+	void setCountInserted(Integer countInserted) {
+		this.countInserted = countInserted;
+	}
+
+	public Integer getCountUpdated() {
+		return countUpdated;
+	}
+
+	void setCountUpdated(Integer countUpdated) {
+		this.countUpdated = countUpdated;
+	}
+
+	public Integer getCountDeleted() {
+		return countDeleted;
+	}
+
+	void setCountDeleted(Integer countDeleted) {
+		this.countDeleted = countDeleted;
+	}
+
+	/**
+	 * @return rows written into the error logging table by the last merge or null if error logging is not enabled
+	 */
+	public Integer getCountRejected() {
+		return countRejected;
+	}
+
+	void setCountRejected(Integer countRejected) {
+		this.countRejected = countRejected;
+	}
+
+	/**
+	 * @return redo generated by the session (V$MYSTAT 'redo size') or null if not available
+	 */
+	public Long getRedoSize() {
+		return redoSize;
+	}
+
+	void setRedoSize(Long redoSize) {
+		this.redoSize = redoSize;
+	}
+
+	/**
+	 * @return undo generated by the session (V$MYSTAT 'undo change vector size') or null if not available
+	 */
+	public Long getUndoSize() {
+		return undoSize;
+	}
+
+	void setUndoSize(Long undoSize) {
+		this.undoSize = undoSize;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("metadata=");
+		sb.append(metadataNanos / 1000000);
+		sb.append("ms (");
+		sb.append(metadataRoundTrips);
+		sb.append(" round trips), build=");
+		sb.append(buildNanos / 1000000);
+		sb.append(planCacheHit ? "ms (cached)" : "ms");
+		if (countStaged != null) {
+			sb.append(", stage=");
+			sb.append(stageNanos / 1000000);
+			sb.append("ms (");
+			sb.append(countStaged);
+			sb.append(" rows)");
+		}
+		sb.append(", explain=");
+		sb.append(explainNanos / 1000000);
+		sb.append("ms, count=");
+		sb.append(countNanos / 1000000);
+		sb.append("ms, prepare=");
+		sb.append(prepareNanos / 1000000);
+		sb.append("ms, execute=");
+		sb.append(executeNanos / 1000000);
+		sb.append("ms, commit=");
+		sb.append(commitNanos / 1000000);
+		sb.append("ms, elapsed=");
+		sb.append(elapsedNanos / 1000000);
+		sb.append("ms, merged=");
+		sb.append(countMerged);
+		sb.append(", inserted=");
+		sb.append(countInserted);
+		sb.append(", updated=");
+		sb.append(countUpdated);
+		sb.append(", deleted=");
+		sb.append(countDeleted);
+		if (countRejected != null) {
+			sb.append(", rejected=");
+			sb.append(countRejected);
+		}
+		sb.append(", redo=");
+		sb.append(redoSize);
+		sb.append(", undo=");
+		sb.append(undoSize);
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,128 @@
+package de.jlo.talendcomp.oracle.merge;
+
+/**
+ * One bind parameter of a compiled merge statement
+ * @author jan.lolling@gmail.com
+ *
+ */
+public final class MergeParameter {
+
+	public enum Kind {
+		/** value of a fixed column */
+		FIXED_COLUMN,
+		/** value of a named parameter like :load_date in the source select or the where conditions */
+		NAMED,
+		/** restriction of the source select to one chunk */
+		CHUNK,
+		/** tag of the rows written into the error logging table */
+		ERROR_LOG_TAG,
+		/** lower or upper bound of the watermark column in an incremental merge */
+		WATERMARK
+	}
+
+	private final Kind kind;
+	private final String name;
+	private final int sqlType;
+	private final int chunkValueIndex;
+	private final ParameterBinder binder;
+
+	private MergeParameter(Kind kind, String name, int sqlType, int chunkValueIndex, ParameterBinder binder) {
+		this.kind = kind;
+		this.name = name;
+		this.sqlType = sqlType;
+		this.chunkValueIndex = chunkValueIndex;
+		this.binder = binder;
+	}
+
+	/**
+	 * @param columnName the fixed column which provides the value
+	 * @param sqlType java.sql.Types of the target column
+	 * @return the parameter
+	 */
+	public static MergeParameter fixedColumn(String columnName, int sqlType) {
+		if (columnName == null || columnName.trim().isEmpty()) {
+			throw new IllegalArgumentException("columnName cannot be null or empty!");
+		}
+		return new MergeParameter(Kind.FIXED_COLUMN, columnName, sqlType, -1, ParameterBinder.forSqlType(sqlType));
+	}
+
+	/**
+	 * @param name the name of the parameter without the leading colon, upper case
+	 * @param sqlType java.sql.Types used to bind null values
+	 * @return the parameter
+	 */
+	public static MergeParameter named(String name, int sqlType) {
+		if (name == null || name.trim().isEmpty()) {
+			throw new IllegalArgumentException("name cannot be null or empty!");
+		}
+		// the type of a named parameter is unknown, the binder follows the class of the value
+		return new MergeParameter(Kind.NAMED, name, sqlType, -1, ParameterBinder.generic(sqlType));
+	}
+
+	/**
+	 * @param chunkValueIndex index of the value in MergeChunk
+	 * @return the parameter
+	 */
+	public static MergeParameter chunk(int chunkValueIndex) {
+		return new MergeParameter(Kind.CHUNK, null, java.sql.Types.NUMERIC, chunkValueIndex, ParameterBinder.generic(java.sql.Types.NUMERIC));
+	}
+
+	/**
+	 * @return the parameter for the tag in the log errors clause
+	 */
+	public static MergeParameter errorLogTag() {
+		return new MergeParameter(Kind.ERROR_LOG_TAG, null, java.sql.Types.VARCHAR, -1, ParameterBinder.forSqlType(java.sql.Types.VARCHAR));
+	}
+
+	/**
+	 * @param boundIndex 0 for the last merged watermark, 1 for the max watermark of the current execution
+	 * @return the parameter for a bound of the watermark column
+	 */
+	public static MergeParameter watermark(int boundIndex) {
+		return new MergeParameter(Kind.WATERMARK, null, java.sql.Types.NUMERIC, boundIndex, ParameterBinder.generic(java.sql.Types.NUMERIC));
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return the fixed column or the name of the named parameter, null for chunk, error log tag and watermark parameters
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the java.sql.Types used to bind null values
+	 */
+	public int getSqlType() {
+		return sqlType;
+	}
+
+	/**
+	 * @return the binder resolved for the target column or the generic binder
+	 */
+	public ParameterBinder getBinder() {
+		return binder;
+	}
+
+	/**
+	 * @return index of the chunk value or the watermark bound
+	 */
+	public int getChunkValueIndex() {
+		return chunkValueIndex;
+	}
+
+	@Override
+	public String toString() {
+		if (kind == Kind.CHUNK || kind == Kind.WATERMARK) {
+			return kind + "[" + chunkValueIndex + "]";
+		} else if (kind == Kind.ERROR_LOG_TAG) {
+			return kind.toString();
+		} else {
+			return kind + ":" + name + ":" + sqlType;
+		}
+	}
+
+}
@@ -0,0 +1,164 @@
+package de.jlo.talendcomp.oracle.merge;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import de.jlo.datamodel.SQLTable;
+import de.jlo.datamodel.SQLTableSnapshot;
+
+/**
+ * A compiled merge statement: the SQL code, the layout of the bind parameters and the target table meta data.
+ * Cached plans live as long as the JVM, therefore the meta data is kept as snapshot without references to the data model and its connection.
+ * The plan keeps one prepared statement per connection, therefore repeated executions only rebind the values
+ * and Oracle can reuse the open cursor instead of parsing the statement again.
+ * @author jan.lolling@gmail.com
+ *
+ */
+public class MergePlan {
+
+	private final String fingerprint;
+	private final String sql;
+	private final List<MergeParameter> parameters;
+	private final SQLTableSnapshot targetTableSnapshot;
+	private final Map<Connection, PreparedStatement> statements = new IdentityHashMap<>();
+	private boolean closed = false;
+	private int countPrepared = 0;
+
+	/**
+	 * @param fingerprint key in the plan cache or null if the plan will not be cached
+	 * @param sql
+	 * @param parameters
+	 * @param targetTable only needed for a plan with fingerprint
+	 */
+	public MergePlan(String fingerprint, String sql, List<MergeParameter> parameters, SQLTable targetTable) {
+		if (sql == null || sql.trim().isEmpty()) {
+			throw new IllegalArgumentException("sql cannot be null or empty!");
+		}
+		this.fingerprint = fingerprint;
+		this.sql = sql;
+		this.parameters = Collections.unmodifiableList(new ArrayList<MergeParameter>(parameters));
+		// only a cached plan must provide the meta data for the next merge
+		this.targetTableSnapshot = fingerprint != null ? SQLTableSnapshot.create(targetTable) : null;
+	}
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	public String getSql() {
+		return sql;
+	}
+
+	/**
+	 * @return the parameters in bind order
+	 */
+	public List<MergeParameter> getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * @return the meta data of the target table or null if the plan has no fingerprint
+	 */
+	public SQLTableSnapshot getTargetTableSnapshot() {
+		return targetTableSnapshot;
+	}
+
+	/**
+	 * Takes the prepared statement of the connection or prepares a new one.
+	 * The statement belongs exclusively to the caller until it is released,
+	 * therefore concurrent executions on the same connection get their own statement.
+	 * @param conn
+	 * @return statement with cleared parameters
+	 * @throws SQLException
+	 */
+	public synchronized PreparedStatement acquireStatement(Connection conn) throws SQLException {
+		removeClosedConnections();
+		PreparedStatement ps = statements.remove(conn);
+		if (ps == null || ps.isClosed()) {
+			ps = conn.prepareStatement(sql);
+			countPrepared++;
+		} else {
+			ps.clearParameters();
+		}
+		return ps;
+	}
+
+	/**
+	 * Gives the statement back for the next execution.
+	 * If the plan is already closed or there is already a statement for the connection, the statement will be closed.
+	 * @param conn
+	 * @param ps
+	 * @throws SQLException
+	 */
+	public synchronized void releaseStatement(Connection conn, PreparedStatement ps) throws SQLException {
+		// the plan lives in the JVM wide cache and must not keep closed connections
+		removeClosedConnections();
+		if (closed || statements.containsKey(conn) || conn.isClosed()) {
+			ps.close();
+		} else {
+			statements.put(conn, ps);
+		}
+	}
+	
+	/**
+	 * Closes and forgets the kept statement of the connection. Must be called before the connection will be closed.
+	 * @param conn
+	 */
+	public synchronized void releaseConnection(Connection conn) {
+		PreparedStatement ps = statements.remove(conn);
+		if (ps != null) {
+			try {
+				ps.close();
+			} catch (SQLException e) {
+				// ignore, the connection is probably already closed
+			}
+		}
+	}
+
+	/**
+	 * @return how often a statement was prepared for this plan
+	 */
+	public synchronized int getCountPrepared() {
+		return countPrepared;
+	}
+
+	private void removeClosedConnections() throws SQLException {
+		Iterator<Map.Entry<Connection, PreparedStatement>> it = statements.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Connection, PreparedStatement> entry = it.next();
+			if (entry.getKey().isClosed()) {
+				it.remove();
+			}
+		}
+	}
+	
+	/**
+	 * @return number of connections with a kept statement
+	 */
+	public synchronized int getCountKeptStatements() {
+		return statements.size();
+	}
+
+	/**
+	 * Closes all kept statements. The plan can still be used but does not keep statements any longer.
+	 */
+	public synchronized void close() {
+		closed = true;
+		for (PreparedStatement ps : statements.values()) {
+			try {
+				ps.close();
+			} catch (SQLException e) {
+				// ignore, the connection is probably already closed
+			}
+		}
+		statements.clear();
+	}
+
+}
@@ -0,0 +1,104 @@
+package de.jlo.talendcomp.oracle.merge;
+
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JVM wide cache for compiled merge plans. The key is the fingerprint of the merge configuration.
+ * Evicted plans close their prepared statements.
+ * @author jan.lolling@gmail.com
+ *
+ */
+public final class MergePlanCache {
+
+	public static final int DEFAULT_MAX_SIZE = 100;
+	private static final MergePlanCache instance = new MergePlanCache();
+	private int maxSize = DEFAULT_MAX_SIZE;
+	private final LinkedHashMap<String, MergePlan> cache = new LinkedHashMap<String, MergePlan>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, MergePlan> eldest) {
+			if (size() > maxSize) {
+				eldest.getValue().close();
+				return true;
+			} else {
+				return false;
+			}
+		}
+
+	};
+
+	private MergePlanCache() {}
+
+	public static MergePlanCache getInstance() {
+		return instance;
+	}
+
+	public synchronized MergePlan get(String fingerprint) {
+		return cache.get(fingerprint);
+	}
+
+	public synchronized void put(MergePlan plan) {
+		if (plan == null) {
+			throw new IllegalArgumentException("plan cannot be null");
+		}
+		if (plan.getFingerprint() == null) {
+			throw new IllegalArgumentException("plan without fingerprint cannot be cached");
+		}
+		MergePlan old = cache.put(plan.getFingerprint(), plan);
+		if (old != null && old != plan) {
+			old.close();
+		}
+	}
+
+	public synchronized void invalidate(String fingerprint) {
+		MergePlan plan = cache.remove(fingerprint);
+		if (plan != null) {
+			plan.close();
+		}
+	}
+
+	public synchronized void invalidateAll() {
+		for (MergePlan plan : cache.values()) {
+			plan.close();
+		}
+		cache.clear();
+	}
+
+	/**
+	 * Closes the kept statements of the connection in all plans
+	 * @param conn the connection which will be closed
+	 */
+	public synchronized void releaseConnection(Connection conn) {
+		for (MergePlan plan : cache.values()) {
+			plan.releaseConnection(conn);
+		}
+	}
+
+	public synchronized int size() {
+		return cache.size();
+	}
+
+	public synchronized int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Set the max number of plans in the cache
+	 * @param maxSize must be greater than 0
+	 */
+	public synchronized void setMaxSize(int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be greater than 0");
+		}
+		this.maxSize = maxSize;
+		while (cache.size() > maxSize) {
+			String eldest = cache.keySet().iterator().next();
+			invalidate(eldest);
+		}
+	}
+
+}
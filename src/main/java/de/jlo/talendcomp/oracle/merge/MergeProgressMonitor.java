@@ -0,0 +1,90 @@
+package de.jlo.talendcomp.oracle.merge;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Polls V$SESSION_LONGOPS for the statement currently running in the merge session.
+ * The monitor needs its own connection because the merge connection is busy.
+ * @author jan.lolling@gmail.com
+ *
+ */
+class MergeProgressMonitor implements Runnable {
+
+	private static final Logger logger = Logger.getLogger(MergeProgressMonitor.class);
+	private static final String SQL_LONGOPS =
+			"select l.OPNAME, l.TARGET, l.SOFAR, l.TOTALWORK, l.UNITS, l.TIME_REMAINING\n"
+			+ "from V$SESSION_LONGOPS l\n"
+			+ "join V$SESSION s on s.SID = l.SID and s.SERIAL# = l.SERIAL# and s.SQL_ID = l.SQL_ID\n"
+			+ "where l.SID = ? and l.SOFAR < l.TOTALWORK\n"
+			+ "order by l.START_TIME desc";
+	private final OracleMerge merge;
+	private final ConnectionProvider connectionProvider;
+	private final long sid;
+	private final long intervalMillis;
+	private volatile boolean running = true;
+	private Thread thread = null;
+
+	MergeProgressMonitor(OracleMerge merge, ConnectionProvider connectionProvider, long sid, long intervalMillis) {
+		this.merge = merge;
+		this.connectionProvider = connectionProvider;
+		this.sid = sid;
+		this.intervalMillis = intervalMillis;
+	}
+
+	void start() {
+		thread = new Thread(this, "merge-progress-" + sid);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	void stop() {
+		running = false;
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+	@Override
+	public void run() {
+		Connection conn = null;
+		try {
+			conn = connectionProvider.createConnection();
+			PreparedStatement ps = conn.prepareStatement(SQL_LONGOPS);
+			try {
+				ps.setLong(1, sid);
+				while (running) {
+					ResultSet rs = ps.executeQuery();
+					if (rs.next()) {
+						String message = rs.getString("OPNAME") + " " + rs.getString("TARGET")
+								+ ": " + rs.getLong("SOFAR") + " of " + rs.getLong("TOTALWORK") + " " + rs.getString("UNITS")
+								+ ", remaining " + rs.getLong("TIME_REMAINING") + "s";
+						merge.fireProgress(message, rs.getLong("SOFAR"), rs.getLong("TOTALWORK"));
+					}
+					rs.close();
+					Thread.sleep(intervalMillis);
+				}
+			} finally {
+				ps.close();
+			}
+		} catch (InterruptedException ie) {
+			// stopped
+		} catch (SQLException sqle) {
+			// the merge must not fail because of missing privileges for the V$ views
+			logger.warn("Progress monitor stopped: " + sqle.getMessage());
+		} finally {
+			if (conn != null) {
+				try {
+					conn.close();
+				} catch (SQLException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,35 @@
+package de.jlo.talendcomp.oracle.merge;
+
+/**
+ * Defines how nullable key columns are compared in the on clause of the merge
+ * @author jan.lolling@gmail.com
+ *
+ */
+public enum NullSafeJoinMode {
+	
+	/**
+	 * ((t.k is null and s.k is null) or (t.k=s.k))
+	 * The or prevents hash joins and index access.
+	 */
+	OR_EXPANSION,
+	
+	/**
+	 * nvl(t.k, sentinel)=nvl(s.k, sentinel)
+	 * The sentinel is a value which never occurs in the data and depends on the column type.
+	 */
+	NVL_SENTINEL,
+	
+	/**
+	 * sys_op_map_nonnull(t.k)=sys_op_map_nonnull(s.k)
+	 * Needs no sentinel but is an undocumented Oracle function.
+	 */
+	SYS_OP_MAP_NONNULL;
+	
+	public static NullSafeJoinMode parse(String mode) {
+		if (mode == null || mode.trim().isEmpty()) {
+			return OR_EXPANSION;
+		}
+		return valueOf(mode.trim().toUpperCase());
+	}
+
+}
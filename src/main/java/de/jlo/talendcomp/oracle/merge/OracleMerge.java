@@ -1,17 +1,42 @@
 package de.jlo.talendcomp.oracle.merge;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.CallableStatement;
 import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
+import de.jlo.datamodel.DatamodelEventDispatcher;
+import de.jlo.datamodel.DatamodelListener;
+import de.jlo.datamodel.MetadataCache;
+import de.jlo.datamodel.MetadataLoadProfile;
 import de.jlo.datamodel.SQLDataModel;
 import de.jlo.datamodel.SQLField;
-import de.jlo.datamodel.SQLSchema;
+import de.jlo.datamodel.SQLIndex;
+import de.jlo.datamodel.SQLPartition;
 import de.jlo.datamodel.SQLTable;
+import de.jlo.datamodel.generator.SQLCodeGenerator;
 
 /**
  * Builds a merge statement
@@ -26,8 +51,9 @@ public class OracleMerge {
 	private String sourceSelectCode = null;
 	private SQLTable targetTable = null;
 	private List<ColumnValue> fixedColumnValueList = new ArrayList<ColumnValue>();
-	private List<String> excludeColumnList = new ArrayList<>();
-	private List<String> updateOnlyColumnList = new ArrayList<>();
+	private Map<String, ColumnValue> fixedColumnValueMap = new HashMap<>();
+	private Set<String> excludeColumnSet = new HashSet<>();
+	private Set<String> updateOnlyColumnSet = new HashSet<>();
 	private boolean allowInsert = true;
 	private boolean allowUpdate = true;
 	private boolean allowDelete = false;
@@ -35,7 +61,78 @@ public class OracleMerge {
 	private String deleteWhereCondition = null;
 	private String currentMergeSQLCode = null;
 	private boolean doCommit = true;
-	private List<String> keywords = new ArrayList<>();
+	private Set<String> keywords = new HashSet<>();
+	// quoted or plain column names, cleared when a keyword is added
+	private Map<String, String> columnNameCache = new HashMap<>();
+	private boolean useMetadataCache = false;
+	private ChunkMode chunkMode = ChunkMode.NONE;
+	private String chunkColumn = null;
+	private int chunkCount = 1;
+	private int chunkThreads = 1;
+	private ConnectionProvider chunkConnectionProvider = null;
+	private List<MergeChunk> lastChunks = null;
+	private Set<String> chunkPartitionNames = new HashSet<>();
+	// partition and source restriction of the statement currently generated for a partition chunk
+	private String chunkPartitionName = null;
+	private String chunkPredicate = null;
+	private String mergeHint = null;
+	private int parallelDegree = 0;
+	private boolean enableParallelDml = false;
+	private boolean updateOnlyChangedRows = false;
+	private boolean compareByHash = false;
+	private NullSafeJoinMode nullSafeJoinMode = NullSafeJoinMode.OR_EXPANSION;
+	private Map<String, NullSafeJoinMode> nullSafeJoinModeMap = new HashMap<>();
+	private Long explainMaxCost = null;
+	private boolean failOnTargetFullScan = false;
+	private ExplainPlan lastExplainPlan = null;
+	private final MergeMetrics metrics = new MergeMetrics();
+	private boolean collectSessionStatistics = false;
+	private boolean countChanges = false;
+	private static final String SQL_SESSION_STATISTICS = 
+			"select n.NAME, s.VALUE\n"
+			+ "from V$MYSTAT s\n"
+			+ "join V$STATNAME n on n.STATISTIC# = s.STATISTIC#\n"
+			+ "where n.NAME in ('redo size', 'undo change vector size')";
+	private String hashColumn = null;
+	// leave space in the 4000 bytes of a varchar2 for multi byte characters in short columns
+	private static final int MAX_HASH_INPUT_LENGTH = 3000;
+	private boolean useMergePlanCache = false;
+	private MergePlan currentPlan = null;
+	private List<MergeParameter> parameterLayout = null;
+	private Map<String, Object> namedParameterValues = new HashMap<>();
+	private int queryTimeout = 0;
+	private final Set<Statement> runningStatements = ConcurrentHashMap.newKeySet();
+	private volatile boolean executing = false;
+	private volatile boolean cancelled = false;
+	private ConnectionProvider progressConnectionProvider = null;
+	private long progressIntervalMillis = 5000;
+	private List<DatamodelListener> listeners = new ArrayList<>();
+	private DatamodelEventDispatcher eventDispatcher = null;
+	private boolean logErrors = false;
+	private String errorLogTableName = null;
+	private boolean createErrorLogTable = true;
+	private boolean errorLogTableChecked = false;
+	private Integer errorLogRejectLimit = null;
+	private String errorLogTag = null;
+	private String currentErrorLogTag = null;
+	private int errorLogSampleSize = 10;
+	private List<String> lastRejectedErrors = null;
+	private StagingMode stagingMode = StagingMode.NONE;
+	private String stagingTableName = null;
+	private Long sessionId = null;
+	private boolean createStagingIndex = true;
+	private String watermarkColumn = null;
+	private WatermarkStore watermarkStore = null;
+	private String watermarkTableName = null;
+	private String watermarkKey = null;
+	// last merged watermark, the statement contains a lower bound only if there is one
+	private Object lastWatermark = null;
+	private boolean watermarkBounded = false;
+	private Object nextWatermark = null;
+	private boolean watermarkPending = false;
+	private String exchangePartitionName = null;
+	private String exchangeTableName = null;
+	private static final String ERROR_LOG_COLUMNS = "'ORA_ERR_NUMBER$','ORA_ERR_MESG$','ORA_ERR_ROWID$','ORA_ERR_OPTYP$','ORA_ERR_TAG$'";
 	
 	public OracleMerge(Connection connection) {
 		this.connection = connection;
@@ -85,9 +182,36 @@ public class OracleMerge {
 		if (targetTableName == null || targetTableName.trim().isEmpty()) {
 			throw new IllegalStateException("Target table name cannot be null or empty!");
 		}
+		long start = System.nanoTime();
 		model = new SQLDataModel(connection);
-		model.loadCatalogs();
-		targetTable = getTargetSQLTable();
+		model.setUseMetadataCache(useMetadataCache);
+		model.setEventDispatcher(eventDispatcher);
+		for (DatamodelListener l : listeners) {
+			model.addDatamodelListener(l);
+		}
+		if (exchangePartitionName != null) {
+			// the exchange table needs all indexes and the partitions
+			model.setLoadProfile(MetadataLoadProfile.FULL);
+		} else if (chunkMode == ChunkMode.PARTITION) {
+			model.setLoadProfile(MetadataLoadProfile.MERGE_PARTITIONED);
+		} else {
+			// the merge needs only columns, primary key and unique indexes
+			model.setLoadProfile(MetadataLoadProfile.MERGE_MINIMAL);
+		}
+		MergePlan plan = null;
+		if (useMergePlanCache) {
+			plan = MergePlanCache.getInstance().get(buildPlanFingerprint());
+		}
+		if (plan != null) {
+			// the compiled plan contains already the target table meta data
+			targetTable = model.restoreTable(plan.getTargetTableSnapshot());
+			// the snapshot keeps only the primary key constraint
+			targetTable.setupPrimaryKeyFieldsByUniqueIndex();
+		} else {
+			targetTable = getTargetSQLTable();
+		}
+		metrics.setMetadataNanos(System.nanoTime() - start);
+		metrics.setMetadataRoundTrips(model.getMetadataRoundTrips());
 	}
 	
 	protected final String getTableName(String schemaAndTable) {
@@ -108,6 +232,14 @@ public class OracleMerge {
 		}
 	}
 	
+	private static String unquote(String name) {
+		if (name.startsWith("\"")) {
+			return name.substring(1, name.length() - 1);
+		} else {
+			return name;
+		}
+	}
+	
 	protected final SQLTable getTargetSQLTable() throws Exception {
 		final String tableAndSchemaName = this.targetTableName;
 		if (targetTable == null || targetTable.getAbsoluteName().equalsIgnoreCase(tableAndSchemaName) == false) {
@@ -115,19 +247,13 @@ public class OracleMerge {
 			if (schemaName == null) {
 				throw new Exception("Schema cannot be resolved");
 			}
-			SQLSchema schema = model.getSchema(schemaName);
-			if (schema == null) {
-				throw new Exception("getTargetSQLTable failed: schema " + schemaName + " not available");
-			}
-			String tableName = getTableName(tableAndSchemaName);
-			if (tableName.startsWith("\"")) {
-				tableName = tableName.substring(1, tableName.length() - 1);
-			}
-			targetTable = schema.getTable(tableName);
+			schemaName = unquote(schemaName);
+			String tableName = unquote(getTableName(tableAndSchemaName));
+			// resolve only the target table instead of loading all catalogs and schemas
+			targetTable = model.resolveTable(schemaName, tableName);
 			if (targetTable == null) {
 				throw new Exception("getTargetSQLTable failed: table " + schemaName + "." + tableName + " not available");
 			}
-			targetTable.loadColumns();
 			if (targetTable.getFieldCount() == 0) {
 				throw new Exception("Table: " + targetTableName + " does not have any fields!");
 			}
@@ -144,13 +270,152 @@ public class OracleMerge {
 		if (sourceSelectCode == null || sourceSelectCode.trim().isEmpty()) {
 			throw new IllegalStateException("source select not set");
 		}
+		if (hashColumn != null && targetTable.getField(hashColumn) == null) {
+			throw new Exception("Hash column: " + hashColumn + " does not exist in the target table: " + targetTable.getAbsoluteName());
+		}
+		long start = System.nanoTime();
+		if (watermarkColumn != null) {
+			lastWatermark = getWatermarkStore().read(getWatermarkKey());
+			watermarkBounded = lastWatermark != null;
+		}
+		String fingerprint = null;
+		if (useMergePlanCache) {
+			fingerprint = buildPlanFingerprint();
+			MergePlan plan = MergePlanCache.getInstance().get(fingerprint);
+			if (plan != null) {
+				setCurrentPlan(plan);
+				metrics.setPlanCacheHit(true);
+				metrics.setBuildNanos(System.nanoTime() - start);
+				return currentMergeSQLCode;
+			}
+		}
+		MergePlan plan = new MergePlan(fingerprint, generateMergeStatement(), parameterLayout, targetTable);
+		parameterLayout = null;
+		if (fingerprint != null) {
+			MergePlanCache.getInstance().put(plan);
+		}
+		setCurrentPlan(plan);
+		metrics.setPlanCacheHit(false);
+		metrics.setBuildNanos(System.nanoTime() - start);
+		return currentMergeSQLCode;
+	}
+	
+	/**
+	 * Generates the merge statement and collects its parameters in parameterLayout
+	 * @return the SQL code
+	 * @throws Exception
+	 */
+	private String generateMergeStatement() throws Exception {
+		parameterLayout = new ArrayList<MergeParameter>();
 		StringBuilder sb = new StringBuilder();
-		sb.append("merge into ");
+		sb.append("merge ");
+		String hint = buildHint();
+		if (hint != null) {
+			sb.append("/*+ ");
+			sb.append(hint);
+			sb.append(" */ ");
+		}
+		sb.append("into ");
 		sb.append(targetTable.getName());
+		if (chunkPartitionName != null) {
+			sb.append(" partition (\"");
+			sb.append(chunkPartitionName);
+			sb.append("\")");
+		}
 		sb.append(" t\nusing (\n");
-		sb.append(sourceSelectCode);
+		if (chunkMode != ChunkMode.NONE) {
+			buildChunkSourceSelect(sb);
+		} else {
+			appendSourceSelect(sb, parameterLayout);
+		}
 		sb.append("\n) s");
 		sb.append("\non (");
+		buildJoinCondition(sb);
+		sb.append(")\n");
+		if (allowUpdate) {
+			buildUpdatePart(sb);
+		}
+		if (allowInsert) {
+			buildInsertPart(sb);
+		}
+		if (logErrors) {
+			buildLogErrorsClause(sb);
+		}
+		return sb.toString();
+	}
+	
+	private void setCurrentPlan(MergePlan plan) {
+		if (currentPlan != null && currentPlan != plan && currentPlan.getFingerprint() == null) {
+			// not cached, nobody else can use the statements
+			currentPlan.close();
+		}
+		currentPlan = plan;
+		currentMergeSQLCode = plan.getSql();
+	}
+	
+	/**
+	 * Builds the fingerprint of all settings which have an effect on the merge statement.
+	 * The values of the fixed columns are not part of it because they are bound as parameters.
+	 * @return SHA-256 hex string
+	 * @throws Exception
+	 */
+	String buildPlanFingerprint() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		appendFingerprintPart(sb, connection.getMetaData().getURL());
+		appendFingerprintPart(sb, connection.getMetaData().getUserName());
+		appendFingerprintPart(sb, targetTableName != null ? targetTableName.trim().toUpperCase() : null);
+		appendFingerprintPart(sb, sourceSelectCode);
+		for (ColumnValue cv : fixedColumnValueList) {
+			appendFingerprintPart(sb, cv.getColumnName());
+		}
+		appendFingerprintPart(sb, new TreeSet<String>(excludeColumnSet));
+		appendFingerprintPart(sb, new TreeSet<String>(updateOnlyColumnSet));
+		appendFingerprintPart(sb, new TreeSet<String>(keywords));
+		appendFingerprintPart(sb, allowInsert);
+		appendFingerprintPart(sb, allowUpdate);
+		appendFingerprintPart(sb, allowDelete);
+		appendFingerprintPart(sb, updateWhereCondition);
+		appendFingerprintPart(sb, deleteWhereCondition);
+		appendFingerprintPart(sb, chunkMode);
+		appendFingerprintPart(sb, chunkColumn);
+		appendFingerprintPart(sb, chunkCount);
+		appendFingerprintPart(sb, new TreeSet<String>(chunkPartitionNames));
+		appendFingerprintPart(sb, mergeHint);
+		appendFingerprintPart(sb, parallelDegree);
+		appendFingerprintPart(sb, updateOnlyChangedRows);
+		appendFingerprintPart(sb, compareByHash);
+		appendFingerprintPart(sb, hashColumn);
+		appendFingerprintPart(sb, nullSafeJoinMode);
+		appendFingerprintPart(sb, new TreeMap<String, NullSafeJoinMode>(nullSafeJoinModeMap));
+		appendFingerprintPart(sb, stagingMode);
+		appendFingerprintPart(sb, stagingMode != StagingMode.NONE ? getStagingTableName() : null);
+		appendFingerprintPart(sb, watermarkColumn);
+		appendFingerprintPart(sb, watermarkBounded);
+		appendFingerprintPart(sb, exchangePartitionName);
+		appendFingerprintPart(sb, logErrors);
+		appendFingerprintPart(sb, logErrors ? getErrorLogTableName() : null);
+		appendFingerprintPart(sb, logErrors ? errorLogRejectLimit : null);
+		MessageDigest md = MessageDigest.getInstance("SHA-256");
+		byte[] digest = md.digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+	
+	/**
+	 * Appends the value with its length and a delimiter, therefore adjacent values cannot run into each other
+	 */
+	private static void appendFingerprintPart(StringBuilder sb, Object value) {
+		String s = String.valueOf(value);
+		sb.append(s.length());
+		sb.append(':');
+		sb.append(s);
+		sb.append('|');
+	}
+	
+	private void buildJoinCondition(StringBuilder sb) throws Exception {
 		boolean firstLoop = true;
 		for (int f = 0, n = targetTable.getFieldCount(); f < n; f++) {
 			SQLField field = targetTable.getFieldAt(f);
@@ -165,15 +430,7 @@ public class OracleMerge {
 						sb.append(" and ");
 					}
 					if (field.isNullValueAllowed()) {
-						sb.append("((t.");
-						sb.append(getColumnName(field.getName()));
-						sb.append(" is null and s.");
-						sb.append(getColumnName(field.getName()));
-						sb.append(" is null) or (t.");
-						sb.append(getColumnName(field.getName()));
-						sb.append("=s.");
-						sb.append(getColumnName(field.getName()));
-						sb.append("))");
+						appendNullSafeJoinCondition(sb, field);
 					} else {
 						sb.append("t.");
 						sb.append(getColumnName(field.getName()));
@@ -185,18 +442,215 @@ public class OracleMerge {
 				}
 			}
 		}
-		sb.append(")\n");
+	}
+	
+	/**
+	 * Builds a query which counts the rows the merge will insert, update and delete.
+	 * The query joins the source with the target like the merge does.
+	 * The delete condition is evaluated with the target values before the update,
+	 * therefore the deleted count is an estimate if the condition refers to updated columns.
+	 * @return the count query
+	 * @throws Exception
+	 */
+	public String buildCountStatement() throws Exception {
+		return buildCountStatement(new ArrayList<MergeParameter>());
+	}
+	
+	private String buildCountStatement(List<MergeParameter> layout) throws Exception {
+		if (sourceSelectCode == null || sourceSelectCode.trim().isEmpty()) {
+			throw new IllegalStateException("source select not set");
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append("select\n  nvl(sum(case when t.rowid is null then 1 else 0 end), 0) as COUNT_INSERT");
+		String updateCondition = null;
 		if (allowUpdate) {
-			buildUpdatePart(sb);
+			updateCondition = buildUpdateCondition();
+			sb.append(",\n  nvl(sum(case when t.rowid is not null");
+			if (updateCondition != null) {
+				sb.append(" and (");
+				appendCode(sb, updateCondition, layout);
+				sb.append(")");
+			}
+			sb.append(" then 1 else 0 end), 0) as COUNT_UPDATE");
+		} else {
+			sb.append(",\n  0 as COUNT_UPDATE");
 		}
-		if (allowInsert) {
-			buildInsertPart(sb);
+		if (allowUpdate && allowDelete && deleteWhereCondition != null) {
+			sb.append(",\n  nvl(sum(case when t.rowid is not null");
+			if (updateCondition != null) {
+				sb.append(" and (");
+				appendCode(sb, updateCondition, layout);
+				sb.append(")");
+			}
+			sb.append(" and (");
+			appendCode(sb, deleteWhereCondition, layout);
+			sb.append(") then 1 else 0 end), 0) as COUNT_DELETE");
+		} else {
+			sb.append(",\n  0 as COUNT_DELETE");
+		}
+		sb.append("\nfrom (\n");
+		appendSourceSelect(sb, layout);
+		sb.append("\n) s\nleft join ");
+		sb.append(targetTable.getName());
+		sb.append(" t on (");
+		buildJoinCondition(sb);
+		sb.append(")");
+		return sb.toString();
+	}
+	
+	/**
+	 * Counts the rows the merge will insert, update and delete and sets the counts into the metrics
+	 * @throws Exception
+	 */
+	private void countChanges() throws Exception {
+		List<MergeParameter> layout = new ArrayList<MergeParameter>();
+		String sql = buildCountStatement(layout);
+		long start = System.nanoTime();
+		PreparedStatement stat = connection.prepareStatement(sql);
+		stat.setQueryTimeout(queryTimeout);
+		runningStatements.add(stat);
+		try {
+			checkCancelled();
+			bindParameters(stat, layout, null);
+			ResultSet rs = stat.executeQuery();
+			if (rs.next()) {
+				metrics.setCountInserted(rs.getInt("COUNT_INSERT"));
+				metrics.setCountUpdated(rs.getInt("COUNT_UPDATE"));
+				metrics.setCountDeleted(rs.getInt("COUNT_DELETE"));
+			}
+			rs.close();
+		} catch (SQLException sqle) {
+			throw new Exception("Count changes failed: " + sqle.getMessage() + "\nSQL:\n" + sql, sqle);
+		} finally {
+			runningStatements.remove(stat);
+			stat.close();
+		}
+		metrics.setCountNanos(System.nanoTime() - start);
+	}
+	
+	private void appendNullSafeJoinCondition(StringBuilder sb, SQLField field) {
+		String column = getColumnName(field.getName());
+		NullSafeJoinMode mode = getNullSafeJoinMode(field.getName());
+		if (mode == NullSafeJoinMode.NVL_SENTINEL) {
+			String sentinel = getNullSentinel(field);
+			sb.append("nvl(t.");
+			sb.append(column);
+			sb.append(", ");
+			sb.append(sentinel);
+			sb.append(")=nvl(s.");
+			sb.append(column);
+			sb.append(", ");
+			sb.append(sentinel);
+			sb.append(")");
+		} else if (mode == NullSafeJoinMode.SYS_OP_MAP_NONNULL) {
+			sb.append("sys_op_map_nonnull(t.");
+			sb.append(column);
+			sb.append(")=sys_op_map_nonnull(s.");
+			sb.append(column);
+			sb.append(")");
+		} else {
+			sb.append("((t.");
+			sb.append(column);
+			sb.append(" is null and s.");
+			sb.append(column);
+			sb.append(" is null) or (t.");
+			sb.append(column);
+			sb.append("=s.");
+			sb.append(column);
+			sb.append("))");
+		}
+	}
+	
+	/**
+	 * @param field key column
+	 * @return a value of the column type which is not expected as real key value
+	 */
+	private static String getNullSentinel(SQLField field) {
+		String typeName = field.getTypeName() != null ? field.getTypeName().toUpperCase() : "";
+		int type = field.getType();
+		if (typeName.equals("DATE")) {
+			return "date '0001-01-01'";
+		} else if (typeName.startsWith("TIMESTAMP")) {
+			return "timestamp '0001-01-01 00:00:00'";
+		} else if (type == Types.CHAR || type == Types.VARCHAR || type == Types.NCHAR || type == Types.NVARCHAR) {
+			return "chr(0)";
+		} else if (type == Types.VARBINARY || type == Types.BINARY) {
+			return "hextoraw('00')";
+		} else {
+			// the smallest number Oracle can store
+			return "-9.99E125";
+		}
+	}
+	
+	private NullSafeJoinMode getNullSafeJoinMode(String columnName) {
+		NullSafeJoinMode mode = nullSafeJoinModeMap.get(columnName.toUpperCase());
+		if (mode != null) {
+			return mode;
+		} else {
+			return nullSafeJoinMode;
+		}
+	}
+	
+	private String buildHint() {
+		StringBuilder sb = new StringBuilder();
+		if (mergeHint != null) {
+			sb.append(mergeHint);
+		}
+		if (parallelDegree > 0) {
+			if (sb.length() > 0) {
+				sb.append(" ");
+			}
+			sb.append("parallel(t ");
+			sb.append(parallelDegree);
+			sb.append(")");
+		}
+		if (sb.length() > 0) {
+			return sb.toString();
+		} else {
+			return null;
+		}
+	}
+	
+	private void buildChunkSourceSelect(StringBuilder sb) throws Exception {
+		if (chunkMode == ChunkMode.PARTITION) {
+			sb.append("select * from (\n");
+			appendSourceSelect(sb, parameterLayout);
+			sb.append("\n) c");
+			if (chunkPredicate != null) {
+				sb.append("\nwhere ");
+				sb.append(chunkPredicate);
+			}
+			return;
+		}
+		if (chunkColumn == null) {
+			throw new IllegalStateException("Chunk mode " + chunkMode + " needs a chunk column");
+		}
+		sb.append("select * from (\n");
+		appendSourceSelect(sb, parameterLayout);
+		sb.append("\n) c\nwhere ");
+		// rows with a null chunk column must get into exactly one chunk
+		if (chunkMode == ChunkMode.ORA_HASH) {
+			sb.append("nvl(ora_hash(c.");
+			sb.append(getColumnName(chunkColumn));
+			sb.append(", ");
+			sb.append(chunkCount - 1);
+			sb.append("), 0) = ?");
+			parameterLayout.add(MergeParameter.chunk(0));
+		} else {
+			sb.append("((c.");
+			sb.append(getColumnName(chunkColumn));
+			sb.append(" >= ? and c.");
+			sb.append(getColumnName(chunkColumn));
+			sb.append(" < ?) or (c.");
+			sb.append(getColumnName(chunkColumn));
+			sb.append(" is null and ? = 1))");
+			parameterLayout.add(MergeParameter.chunk(0));
+			parameterLayout.add(MergeParameter.chunk(1));
+			parameterLayout.add(MergeParameter.chunk(2));
 		}
-		currentMergeSQLCode = sb.toString();
-		return currentMergeSQLCode;
 	}
 	
-	private void buildUpdatePart(StringBuilder sb) {
+	private void buildUpdatePart(StringBuilder sb) throws Exception {
 		sb.append("when matched then\n  update set\n");
 		boolean firstLoop = true;
 		for (String fieldName : targetTable.getNonPrimaryKeyFieldNames()) {
@@ -230,50 +684,338 @@ public class OracleMerge {
 				}
 				sb.append(getColumnName(fieldName));
 				sb.append("=?");
+				parameterLayout.add(MergeParameter.fixedColumn(fieldName.toUpperCase(), getSQLTypeForTargetColumn(fieldName)));
 			}
 		}
-		if (updateWhereCondition != null) {
+		if (hashColumn != null) {
+			if (firstLoop) {
+				firstLoop = false;
+				sb.append("    t.");
+			} else {
+				sb.append(",\n    t.");
+			}
+			sb.append(getColumnName(hashColumn));
+			sb.append("=");
+			sb.append(buildRowHashExpression("s", getUpdatedSourceColumns()));
+		}
+		String updateCondition = buildUpdateCondition();
+		if (updateCondition != null) {
 			sb.append("\n  where ");
-			sb.append(updateWhereCondition);
+			appendCode(sb, updateCondition, parameterLayout);
 		}
 		if (allowDelete) {
 			if (deleteWhereCondition == null) {
 				throw new IllegalStateException("Missing delete where condition. Delete option not allowed without where condition!");
 			}
 			sb.append("\n  delete where ");
-			sb.append(deleteWhereCondition);
+			appendCode(sb, deleteWhereCondition, parameterLayout);
 		}
 		sb.append("\n");
 	}
 	
-	private boolean isFixedColumn(String name) {
-		for (ColumnValue cv : fixedColumnValueList) {
-			if (name.equalsIgnoreCase(cv.getColumnName())) {
-				return true;
+	/**
+	 * @return the where condition of the update part or null if all matched rows will be updated
+	 * @throws Exception
+	 */
+	private String buildUpdateCondition() throws Exception {
+		String changePredicate = null;
+		if (updateOnlyChangedRows) {
+			changePredicate = buildChangePredicate();
+		}
+		if (updateWhereCondition != null && changePredicate != null) {
+			return "(" + updateWhereCondition + ")\n    and (" + changePredicate + ")";
+		} else if (updateWhereCondition != null) {
+			return updateWhereCondition;
+		} else if (changePredicate != null) {
+			return "(" + changePredicate + ")";
+		} else {
+			return null;
+		}
+	}
+	
+	/**
+	 * @return the columns taken from the source in the update part
+	 */
+	private List<String> getUpdatedSourceColumns() {
+		List<String> list = new ArrayList<String>();
+		for (String fieldName : targetTable.getNonPrimaryKeyFieldNames()) {
+			if (isFixedColumn(fieldName)) {
+				continue;
+			}
+			if (isExcludedColumn(fieldName)) {
+				continue;
+			}
+			if (isUpdateColumnEnabled(fieldName) == false) {
+				continue;
 			}
+			list.add(fieldName);
 		}
-		return false;
+		return list;
 	}
 	
-	private boolean isExcludedColumn(String name) {
-		for (String s : excludeColumnList) {
-			if (name.equalsIgnoreCase(s)) {
-				return true;
+	/**
+	 * Builds a null safe predicate which is true if at least one updated column has changed.
+	 * decode treats two nulls as equal, LOBs cannot be used in decode and are compared with dbms_lob.compare
+	 * @return predicate or null if there are no columns to compare
+	 */
+	private String buildChangePredicate() throws Exception {
+		List<String> columns = getUpdatedSourceColumns();
+		if (compareByHash || hashColumn != null) {
+			return buildHashChangePredicate(columns);
+		}
+		StringBuilder sb = new StringBuilder();
+		boolean firstLoop = true;
+		for (String fieldName : columns) {
+			if (firstLoop) {
+				firstLoop = false;
+			} else {
+				sb.append("\n    or ");
+			}
+			if (isLobColumn(fieldName)) {
+				appendLobChangePredicate(sb, fieldName);
+			} else {
+				String column = getColumnName(fieldName);
+				sb.append("decode(t.");
+				sb.append(column);
+				sb.append(", s.");
+				sb.append(column);
+				sb.append(", 0, 1) = 1");
+			}
+		}
+		if (firstLoop) {
+			return null;
+		} else {
+			return sb.toString();
+		}
+	}
+	
+	private void appendLobChangePredicate(StringBuilder sb, String fieldName) {
+		String column = getColumnName(fieldName);
+		sb.append("(t.");
+		sb.append(column);
+		sb.append(" is null and s.");
+		sb.append(column);
+		sb.append(" is not null) or (t.");
+		sb.append(column);
+		sb.append(" is not null and s.");
+		sb.append(column);
+		sb.append(" is null) or dbms_lob.compare(t.");
+		sb.append(column);
+		sb.append(", s.");
+		sb.append(column);
+		sb.append(") <> 0");
+	}
+	
+	/**
+	 * Compares the fingerprints of source and target instead of every column.
+	 * LOB columns cannot be part of the hash and are compared separately.
+	 * @param columns the updated columns
+	 * @return predicate or null if there are no columns to compare
+	 */
+	private String buildHashChangePredicate(List<String> columns) throws Exception {
+		StringBuilder sb = new StringBuilder();
+		boolean firstLoop = true;
+		if (hashColumn != null) {
+			// compare with the persisted fingerprint of the target
+			String column = getColumnName(hashColumn);
+			sb.append("t.");
+			sb.append(column);
+			sb.append(" is null or t.");
+			sb.append(column);
+			sb.append(" <> ");
+			sb.append(buildRowHashExpression("s", columns));
+			firstLoop = false;
+		} else {
+			for (List<String> group : getHashColumnGroups(columns)) {
+				if (firstLoop) {
+					firstLoop = false;
+				} else {
+					sb.append("\n    or ");
+				}
+				sb.append(buildHashExpression("t", group));
+				sb.append(" <> ");
+				sb.append(buildHashExpression("s", group));
+			}
+		}
+		for (String fieldName : columns) {
+			if (isLobColumn(fieldName)) {
+				if (firstLoop) {
+					firstLoop = false;
+				} else {
+					sb.append("\n    or ");
+				}
+				appendLobChangePredicate(sb, fieldName);
 			}
 		}
+		if (firstLoop) {
+			return null;
+		} else {
+			return sb.toString();
+		}
+	}
+	
+	/**
+	 * Splits the columns into groups. 
+	 * The concatenated values of a group must fit into a varchar2 for standard_hash.
+	 * @param columns
+	 * @return groups without LOB columns
+	 */
+	private List<List<String>> getHashColumnGroups(List<String> columns) {
+		List<List<String>> groups = new ArrayList<List<String>>();
+		List<String> group = new ArrayList<String>();
+		int groupLength = 0;
+		for (String fieldName : columns) {
+			if (isLobColumn(fieldName)) {
+				continue;
+			}
+			int length = getHashInputLength(targetTable.getField(fieldName)) + 1;
+			if (groupLength + length > MAX_HASH_INPUT_LENGTH && group.isEmpty() == false) {
+				groups.add(group);
+				group = new ArrayList<String>();
+				groupLength = 0;
+			}
+			group.add(fieldName);
+			groupLength = groupLength + length;
+		}
+		if (group.isEmpty() == false) {
+			groups.add(group);
+		}
+		return groups;
+	}
+	
+	/**
+	 * Builds the expression for the persisted fingerprint. 
+	 * More than one group is combined into a hash of the group hashes.
+	 * @param alias
+	 * @param columns the updated columns
+	 * @return expression
+	 */
+	private String buildRowHashExpression(String alias, List<String> columns) throws Exception {
+		List<List<String>> groups = getHashColumnGroups(columns);
+		if (groups.isEmpty()) {
+			throw new Exception("Hash column: " + hashColumn + " configured but there are no columns to build the hash from");
+		}
+		if (groups.size() == 1) {
+			return buildHashExpression(alias, groups.get(0));
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append("standard_hash(");
+		boolean firstLoop = true;
+		for (List<String> group : groups) {
+			if (firstLoop) {
+				firstLoop = false;
+			} else {
+				sb.append(" || ");
+			}
+			sb.append("rawtohex(");
+			sb.append(buildHashExpression(alias, group));
+			sb.append(")");
+		}
+		sb.append(", 'MD5')");
+		return sb.toString();
+	}
+	
+	private String buildHashExpression(String alias, List<String> group) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("standard_hash(");
+		boolean firstLoop = true;
+		for (String fieldName : group) {
+			if (firstLoop) {
+				firstLoop = false;
+			} else {
+				sb.append(" || ");
+			}
+			// the separator before every value keeps the expression not null and distinguishes the positions of nulls
+			sb.append("chr(31) || ");
+			sb.append(getHashInputExpression(alias, targetTable.getField(fieldName)));
+		}
+		sb.append(", 'MD5')");
+		return sb.toString();
+	}
+	
+	private String getHashInputExpression(String alias, SQLField field) {
+		String column = alias + "." + getColumnName(field.getName());
+		String typeName = field.getTypeName() != null ? field.getTypeName().toUpperCase() : "";
+		int type = field.getType();
+		if (typeName.equals("DATE")) {
+			return "to_char(" + column + ", 'YYYYMMDDHH24MISS')";
+		} else if (typeName.startsWith("TIMESTAMP")) {
+			return "to_char(" + column + ", 'YYYYMMDDHH24MISSFF9')";
+		} else if (type == Types.CHAR || type == Types.VARCHAR || type == Types.NCHAR || type == Types.NVARCHAR) {
+			return column;
+		} else if (type == Types.VARBINARY || type == Types.BINARY) {
+			return "rawtohex(" + column + ")";
+		} else if (type == Types.DECIMAL || type == Types.NUMERIC || type == Types.FLOAT || type == Types.DOUBLE || type == Types.REAL || type == Types.INTEGER || type == Types.BIGINT) {
+			return "to_char(" + column + ", 'TM9')";
+		} else {
+			return "to_char(" + column + ")";
+		}
+	}
+	
+	private static int getHashInputLength(SQLField field) {
+		String typeName = field.getTypeName() != null ? field.getTypeName().toUpperCase() : "";
+		int type = field.getType();
+		if (typeName.equals("DATE")) {
+			return 14;
+		} else if (typeName.startsWith("TIMESTAMP")) {
+			return 23;
+		} else if (type == Types.CHAR || type == Types.VARCHAR || type == Types.NCHAR || type == Types.NVARCHAR) {
+			return field.getLength() > 0 ? field.getLength() : MAX_HASH_INPUT_LENGTH;
+		} else if (type == Types.VARBINARY || type == Types.BINARY) {
+			return field.getLength() > 0 ? field.getLength() * 2 : MAX_HASH_INPUT_LENGTH;
+		} else {
+			return 64;
+		}
+	}
+	
+	private boolean isLobColumn(String name) {
+		SQLField field = targetTable.getField(name);
+		if (field != null) {
+			int type = field.getType();
+			return type == Types.CLOB || type == Types.NCLOB || type == Types.BLOB;
+		}
 		return false;
 	}
 	
+	private boolean isFixedColumn(String name) {
+		return fixedColumnValueMap.containsKey(name.toUpperCase());
+	}
+	
+	private boolean isExcludedColumn(String name) {
+		if (name.equalsIgnoreCase(hashColumn)) {
+			// the hash column is not part of the source
+			return true;
+		}
+		return excludeColumnSet.contains(name.toUpperCase());
+	}
+	
 	private String getColumnName(String fieldName) {
-		if (isKeyword(fieldName)) {
-			return "\"" + fieldName + "\"";
-		} else {
-			return fieldName;
+		String columnName = columnNameCache.get(fieldName);
+		if (columnName == null) {
+			if (isKeyword(fieldName)) {
+				columnName = "\"" + fieldName + "\"";
+			} else {
+				columnName = fieldName;
+			}
+			columnNameCache.put(fieldName, columnName);
 		}
+		return columnName;
 	}
 
-	private void buildInsertPart(StringBuilder sb) {
+	private void buildInsertPart(StringBuilder sb) throws Exception {
 		sb.append("when not matched then\n  insert (");
+		appendInsertColumns(sb, "t.");
+		sb.append(")\n  values (");
+		appendInsertValues(sb, parameterLayout);
+		sb.append(")");
+	}
+	
+	/**
+	 * Appends the inserted columns: source columns, fixed columns and the hash column
+	 * @param sb
+	 * @param prefix prefix of every column e.g. the alias with dot
+	 */
+	private void appendInsertColumns(StringBuilder sb, String prefix) {
 		boolean firstLoop = true;
 		for (String fieldName : targetTable.getFieldNames()) {
 			if (isFixedColumn(fieldName)) {
@@ -284,23 +1026,38 @@ public class OracleMerge {
 			}
 			if (firstLoop) {
 				firstLoop = false;
-				sb.append("t.");
 			} else {
-				sb.append(",t.");
+				sb.append(",");
 			}
+			sb.append(prefix);
 			sb.append(getColumnName(fieldName));
 		}
 		for (ColumnValue cv : fixedColumnValueList) {
 			if (firstLoop) {
 				firstLoop = false;
-				sb.append("    t.");
 			} else {
-				sb.append(",t.");
+				sb.append(",");
 			}
+			sb.append(prefix);
 			sb.append(cv.getColumnName());
 		}
-		sb.append(")\n  values (");
-		firstLoop = true;
+		if (hashColumn != null) {
+			if (firstLoop == false) {
+				sb.append(",");
+			}
+			sb.append(prefix);
+			sb.append(getColumnName(hashColumn));
+		}
+	}
+	
+	/**
+	 * Appends the values for the columns of appendInsertColumns taken from the source alias s
+	 * @param sb
+	 * @param layout takes the parameters of the fixed columns
+	 * @throws Exception
+	 */
+	private void appendInsertValues(StringBuilder sb, List<MergeParameter> layout) throws Exception {
+		boolean firstLoop = true;
 		for (String fieldName : targetTable.getFieldNames()) {
 			if (isFixedColumn(fieldName)) {
 				continue;
@@ -316,94 +1073,1690 @@ public class OracleMerge {
 			}
 			sb.append(getColumnName(fieldName));
 		}
-		for (int i = 1; i <= fixedColumnValueList.size(); i++) {
+		for (ColumnValue cv : fixedColumnValueList) {
 			if (firstLoop) {
 				firstLoop = false;
 				sb.append("?");
 			} else {
 				sb.append(",?");
 			}
+			layout.add(MergeParameter.fixedColumn(cv.getColumnName(), getSQLTypeForTargetColumn(cv.getColumnName())));
 		}
-		sb.append(")");
-	}
-	
-	private int getSQLTypeForTargetColumn(String columnName) throws Exception {
-		SQLField f = targetTable.getField(columnName);
-		if (f == null) {
-			throw new Exception("Column: " + columnName + " does not exist in the target table: " + targetTable.getAbsoluteName());
+		if (hashColumn != null) {
+			if (firstLoop == false) {
+				sb.append(",");
+			}
+			sb.append(buildRowHashExpression("s", getUpdatedSourceColumns()));
 		}
-		return f.getType();
 	}
 	
-	private int setupPreparedStatement(PreparedStatement ps, int paramIndex) throws Exception {
-		for (int i = 0; i < fixedColumnValueList.size(); i++) {
-			ColumnValue cv = fixedColumnValueList.get(i);
-			if (cv.getValue() instanceof String) {
-				ps.setString(paramIndex++, (String) cv.getValue()); 
-			} else if (cv.getValue() instanceof Integer) {
-				ps.setInt(paramIndex++, (Integer) cv.getValue());
-			} else if (cv.getValue() instanceof Long) {
-				ps.setLong(paramIndex++, (Long) cv.getValue());
-			} else if (cv.getValue() instanceof BigDecimal) {
-				ps.setBigDecimal(paramIndex++, (BigDecimal) cv.getValue());
-			} else if (cv.getValue() instanceof Short) {
-				ps.setShort(paramIndex++, (Short) cv.getValue());
-			} else if (cv.getValue() instanceof Double) {
-				ps.setDouble(paramIndex++, (Double) cv.getValue());
-			} else if (cv.getValue() instanceof Float) {
-				ps.setFloat(paramIndex++, (Float) cv.getValue());
-			} else if (cv.getValue() instanceof Date) {
-				ps.setDate(paramIndex++, new java.sql.Date(((Date) cv.getValue()).getTime()));
-			} else if (cv.getValue() instanceof Boolean) {
-				ps.setBoolean(paramIndex++, (Boolean) cv.getValue());
-			} else if (cv.getValue() != null) {
-				ps.setObject(paramIndex++, cv.getValue());
-			} else {
-				ps.setNull(paramIndex++, getSQLTypeForTargetColumn(cv.getColumnName()));
-			}
+	/**
+	 * The tag is a bind parameter, therefore the plan can be reused for every execution with its own tag
+	 */
+	private void buildLogErrorsClause(StringBuilder sb) {
+		sb.append("\nlog errors into ");
+		sb.append(getErrorLogTableName());
+		sb.append(" (?) reject limit ");
+		parameterLayout.add(MergeParameter.errorLogTag());
+		if (errorLogRejectLimit != null) {
+			sb.append(errorLogRejectLimit);
+		} else {
+			sb.append("unlimited");
 		}
-		return paramIndex;
 	}
 	
-	private PreparedStatement prepareStatement() throws Exception {
-		if (currentMergeSQLCode == null) {
-			throw new IllegalStateException("Merge SQL statement not created, please call buildMergeStatement() before");
-		}
-		PreparedStatement ps = connection.prepareStatement(currentMergeSQLCode);
-		// set prepared statement parameters
-		int paramIndex = 1;
-		if (allowUpdate) {
-			paramIndex = setupPreparedStatement(ps, paramIndex);
+	/**
+	 * @return the configured error logging table or ERR$_ + the first 25 characters of the target table (the DBMS_ERRLOG default)
+	 */
+	public String getErrorLogTableName() {
+		if (errorLogTableName != null) {
+			return errorLogTableName;
 		}
-		if (allowInsert) {
-			paramIndex = setupPreparedStatement(ps, paramIndex);
+		String tableName = targetTable != null ? targetTable.getName() : unquote(getTableName(targetTableName));
+		String name = "ERR$_" + (tableName.length() > 25 ? tableName.substring(0, 25) : tableName);
+		if (targetTable != null) {
+			return targetTable.getSchema().getName() + "." + name;
+		} else {
+			return name;
 		}
-		return ps;
 	}
-
-	public int execute() throws Exception {
-		PreparedStatement ps = prepareStatement();
-		int count = 0;
+	
+	/**
+	 * Checks if the error logging table exists and has the DBMS_ERRLOG columns. 
+	 * A missing table will be created with DBMS_ERRLOG.CREATE_ERROR_TABLE if allowed.
+	 * Creating the table is DDL and commits the current transaction.
+	 * @throws Exception
+	 */
+	private void checkErrorLogTable() throws Exception {
+		if (errorLogTableChecked) {
+			return;
+		}
+		String errorTable = getErrorLogTableName();
+		String owner = unquote(getSchemaName(errorTable));
+		String tableName = unquote(getTableName(errorTable));
+		int countColumns = 0;
+		int countErrorColumns = 0;
+		PreparedStatement ps = connection.prepareStatement(
+				"select count(*), nvl(sum(case when COLUMN_NAME in (" + ERROR_LOG_COLUMNS + ") then 1 else 0 end), 0)\n"
+				+ "from ALL_TAB_COLUMNS\n"
+				+ "where OWNER = ? and TABLE_NAME = ?");
 		try {
-			count = ps.executeUpdate();
-		} catch (SQLException sqle) {
-			if (doCommit && connection.getAutoCommit() == false) {
-				connection.rollback();
+			ps.setString(1, owner);
+			ps.setString(2, tableName);
+			ResultSet rs = ps.executeQuery();
+			if (rs.next()) {
+				countColumns = rs.getInt(1);
+				countErrorColumns = rs.getInt(2);
 			}
-			throw new Exception("Execute merge failed: " + sqle.getMessage() + "\nSQL:\n" + currentMergeSQLCode, sqle);
+			rs.close();
+		} finally {
+			ps.close();
 		}
-		if (doCommit && connection.getAutoCommit() == false) {
-			connection.commit();
+		if (countColumns == 0) {
+			if (createErrorLogTable == false) {
+				throw new Exception("Error logging table: " + errorTable + " does not exist");
+			}
+			CallableStatement cs = connection.prepareCall(
+					"begin dbms_errlog.create_error_table(dml_table_name => ?, err_log_table_name => ?, err_log_table_owner => ?, skip_unsupported => true); end;");
+			try {
+				cs.setString(1, targetTable.getSchema().getName() + "." + targetTable.getName());
+				cs.setString(2, tableName);
+				cs.setString(3, owner);
+				cs.execute();
+			} catch (SQLException sqle) {
+				throw new Exception("Create error logging table: " + errorTable + " failed: " + sqle.getMessage(), sqle);
+			} finally {
+				cs.close();
+			}
+		} else if (countErrorColumns < 5) {
+			throw new Exception("Table: " + errorTable + " is not an error logging table, the columns " + ERROR_LOG_COLUMNS + " are missing");
+		}
+		errorLogTableChecked = true;
+	}
+	
+	/**
+	 * Reads the number of rejected rows and a sample of the errors of the current execution.
+	 * The error logging table is written autonomously, therefore the rows are also available after a rollback.
+	 */
+	private void readRejectedRows() {
+		String errorTable = getErrorLogTableName();
+		lastRejectedErrors = new ArrayList<String>();
+		try {
+			PreparedStatement ps = connection.prepareStatement("select count(*) from " + errorTable + " where ORA_ERR_TAG$ = ?");
+			try {
+				ps.setString(1, currentErrorLogTag);
+				ResultSet rs = ps.executeQuery();
+				if (rs.next()) {
+					metrics.setCountRejected(rs.getInt(1));
+				}
+				rs.close();
+			} finally {
+				ps.close();
+			}
+			if (metrics.getCountRejected() != null && metrics.getCountRejected() > 0 && errorLogSampleSize > 0) {
+				ps = connection.prepareStatement(
+						"select ORA_ERR_NUMBER$, ORA_ERR_MESG$, ORA_ERR_OPTYP$, ORA_ERR_ROWID$ from " + errorTable 
+						+ " where ORA_ERR_TAG$ = ? and rownum <= ?");
+				try {
+					ps.setString(1, currentErrorLogTag);
+					ps.setInt(2, errorLogSampleSize);
+					ResultSet rs = ps.executeQuery();
+					while (rs.next()) {
+						String message = rs.getString(2);
+						if (message != null) {
+							message = message.trim();
+						}
+						StringBuilder sb = new StringBuilder();
+						sb.append(message);
+						sb.append(" (operation: ");
+						sb.append(rs.getString(3));
+						String rowId = rs.getString(4);
+						if (rowId != null) {
+							sb.append(", rowid: ");
+							sb.append(rowId);
+						}
+						sb.append(")");
+						lastRejectedErrors.add(sb.toString());
+					}
+					rs.close();
+				} finally {
+					ps.close();
+				}
+			}
+		} catch (SQLException sqle) {
+			// must not hide the result or the error of the merge
+			lastRejectedErrors.add("Read rejected rows from " + errorTable + " failed: " + sqle.getMessage());
+		}
+	}
+
+	private int getSQLTypeForTargetColumn(String columnName) throws Exception {
+		SQLField f = targetTable.getField(columnName);
+		if (f == null) {
+			throw new Exception("Column: " + columnName + " does not exist in the target table: " + targetTable.getAbsoluteName());
+		}
+		return f.getType();
+	}
+	
+	/**
+	 * Binds the values of the fixed columns, the named parameters and the chunk restriction
+	 * @param ps the statement
+	 * @param layout the parameters in bind order
+	 * @param chunk the current chunk or null
+	 * @throws Exception
+	 */
+	private void bindParameters(PreparedStatement ps, List<MergeParameter> layout, MergeChunk chunk) throws Exception {
+		int paramIndex = 1;
+		for (MergeParameter p : layout) {
+			if (p.getKind() == MergeParameter.Kind.FIXED_COLUMN) {
+				ColumnValue cv = fixedColumnValueMap.get(p.getName());
+				p.getBinder().bind(ps, paramIndex++, cv != null ? cv.getValue() : null);
+			} else if (p.getKind() == MergeParameter.Kind.NAMED) {
+				if (namedParameterValues.containsKey(p.getName()) == false) {
+					throw new IllegalStateException("No value set for parameter :" + p.getName());
+				}
+				p.getBinder().bind(ps, paramIndex++, namedParameterValues.get(p.getName()));
+			} else if (p.getKind() == MergeParameter.Kind.ERROR_LOG_TAG) {
+				p.getBinder().bind(ps, paramIndex++, currentErrorLogTag);
+			} else if (p.getKind() == MergeParameter.Kind.WATERMARK) {
+				p.getBinder().bind(ps, paramIndex++, p.getChunkValueIndex() == 0 ? lastWatermark : nextWatermark);
+			} else {
+				if (chunk == null) {
+					throw new IllegalStateException("Statement contains a chunk restriction but no chunk is given");
+				}
+				p.getBinder().bind(ps, paramIndex++, chunk.getBindValue(p.getChunkValueIndex()));
+			}
+		}
+	}
+	
+	private PreparedStatement prepareStatement() throws Exception {
+		return prepareStatement(connection, null);
+	}
+	
+	/**
+	 * Takes the statement of the current plan for the connection and binds the parameters.
+	 * The statement must be given back with releaseStatement() after a successful execution.
+	 */
+	private PreparedStatement prepareStatement(Connection conn, MergeChunk chunk) throws Exception {
+		if (currentPlan == null) {
+			throw new IllegalStateException("Merge SQL statement not created, please call buildMergeStatement() before");
+		}
+		PreparedStatement ps = null;
+		List<MergeParameter> layout = null;
+		if (chunk != null && chunk.getSql() != null) {
+			// partition chunks have their own statement which is not kept by the plan
+			ps = conn.prepareStatement(chunk.getSql());
+			layout = chunk.getParameters();
+		} else {
+			ps = currentPlan.acquireStatement(conn);
+			layout = currentPlan.getParameters();
+		}
+		try {
+			ps.setQueryTimeout(queryTimeout);
+			bindParameters(ps, layout, chunk);
+		} catch (Exception e) {
+			ps.close();
+			throw e;
+		}
+		return ps;
+	}
+
+	/**
+	 * Executes the merge and commits it if configured
+	 * @return number of merged records
+	 * @throws Exception
+	 */
+	public int execute() throws Exception {
+		executing = true;
+		try {
+			return doExecute();
+		} finally {
+			executing = false;
+			cancelled = false;
+		}
+	}
+	
+	/**
+	 * Executes the merge in a new thread
+	 * @return future with the number of merged records, cancelling the future cancels the running statement
+	 */
+	public CompletableFuture<Integer> executeAsync() {
+		return executeAsync(null);
+	}
+	
+	/**
+	 * Executes the merge with the given executor. 
+	 * Cancelling the future cancels the running statement and rolls back the merge. 
+	 * The future is completed immediately, the rollback continues in the background.
+	 * @param executor if null a new thread will be started
+	 * @return future with the number of merged records
+	 */
+	public CompletableFuture<Integer> executeAsync(Executor executor) {
+		final CompletableFuture<Integer> future = new CompletableFuture<Integer>() {
+			
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				OracleMerge.this.cancel();
+				return super.cancel(mayInterruptIfRunning);
+			}
+			
+		};
+		// a cancel() before the task starts must not get lost
+		executing = true;
+		Runnable task = new Runnable() {
+			
+			@Override
+			public void run() {
+				try {
+					future.complete(execute());
+				} catch (Throwable t) {
+					future.completeExceptionally(t);
+				}
+			}
+			
+		};
+		if (executor != null) {
+			executor.execute(task);
+		} else {
+			new Thread(task, "merge-" + targetTableName).start();
+		}
+		return future;
+	}
+	
+	/**
+	 * Cancels the running merge with Statement.cancel(). The merge will be rolled back.
+	 * @return true if a merge was running
+	 */
+	public boolean cancel() {
+		if (executing == false) {
+			return false;
+		}
+		cancelled = true;
+		for (Statement stat : runningStatements) {
+			try {
+				stat.cancel();
+			} catch (SQLException e) {
+				// the statement is probably already finished
+			}
+		}
+		if (model != null) {
+			model.getDatabaseExtension().cancelLastStatement(connection);
+		}
+		return true;
+	}
+	
+	boolean isCancelled() {
+		return cancelled;
+	}
+	
+	private void checkCancelled() throws Exception {
+		if (cancelled) {
+			throw new Exception("Merge into " + targetTableName + " cancelled");
+		}
+	}
+	
+	/**
+	 * Sends a progress event to the listeners of the data model
+	 */
+	void fireProgress(String message, long workDone, long totalWork) {
+		if (model != null) {
+			model.fireProgressEvent(message, workDone, totalWork);
+		}
+	}
+	
+	private int doExecute() throws Exception {
+		checkCancelled();
+		if (enableParallelDml && doCommit == false) {
+			// after a parallel DML the table cannot be read or changed again within the same transaction
+			throw new IllegalStateException("Parallel DML requires a commit after the merge, please enable commit");
+		}
+		if (stagingMode != StagingMode.NONE && doCommit == false) {
+			// the direct path load must be committed before the staging table can be read
+			throw new IllegalStateException("Staging the source requires commit, please enable commit");
+		}
+		if (exchangePartitionName != null && (chunkMode != ChunkMode.NONE || logErrors || watermarkColumn != null || doCommit == false)) {
+			// the exchange is DDL and commits, the partition is replaced completely
+			throw new IllegalStateException("Partition exchange cannot be used with chunks, error logging, watermarks or without commit");
+		}
+		if (stagingMode == StagingMode.GLOBAL_TEMPORARY && chunkThreads > 1 && chunkConnectionProvider != null) {
+			throw new IllegalStateException("The rows of a global temporary table are only visible in the own session and cannot be merged with parallel chunk connections");
+		}
+		metrics.resetExecution();
+		long startElapsed = System.nanoTime();
+		watermarkPending = false;
+		if (watermarkColumn != null && prepareWatermark() == false) {
+			// nothing new since the last merge
+			metrics.setCountMerged(0);
+			setupDerivableCounts(0);
+			metrics.setElapsedNanos(System.nanoTime() - startElapsed);
+			return 0;
+		}
+		if (stagingMode != StagingMode.NONE) {
+			long start = System.nanoTime();
+			metrics.setCountStaged(stageSource());
+			metrics.setStageNanos(System.nanoTime() - start);
+		}
+		try {
+			int count = 0;
+			if (exchangePartitionName != null) {
+				count = executeExchange();
+			} else {
+				count = executeMerge();
+			}
+			if (watermarkColumn != null) {
+				if (doCommit) {
+					getWatermarkStore().write(getWatermarkKey(), nextWatermark);
+					if (connection.getAutoCommit() == false) {
+						// the merge owns the transaction and commits the change of a watermark table
+						connection.commit();
+					}
+					lastWatermark = nextWatermark;
+				} else {
+					// the caller commits the merge and has to call commitWatermark() afterwards
+					watermarkPending = true;
+				}
+			}
+			metrics.setElapsedNanos(System.nanoTime() - startElapsed);
+			return count;
+		} finally {
+			if (stagingMode != StagingMode.NONE) {
+				cleanupStaging();
+			}
+		}
+	}
+	
+	private int executeMerge() throws Exception {
+		if (explainMaxCost != null || failOnTargetFullScan) {
+			long start = System.nanoTime();
+			ExplainPlan plan = explain();
+			metrics.setExplainNanos(System.nanoTime() - start);
+			checkExplainPlan(plan);
+		}
+		long[] statisticsBefore = null;
+		if (collectSessionStatistics) {
+			statisticsBefore = getSessionStatistics();
+		}
+		if (countChanges) {
+			// must run before the merge changes the target
+			countChanges();
+		}
+		lastRejectedErrors = null;
+		if (logErrors) {
+			checkErrorLogTable();
+			if (errorLogTag != null) {
+				currentErrorLogTag = errorLogTag;
+			} else {
+				currentErrorLogTag = "ORAMERGE" + Long.toHexString(System.currentTimeMillis()) + Long.toHexString(System.nanoTime());
+			}
+		}
+		int count = 0;
+		try {
+			if (chunkMode != ChunkMode.NONE) {
+				long start = System.nanoTime();
+				count = executeChunked();
+				metrics.setExecuteNanos(System.nanoTime() - start);
+			} else {
+				count = executeSingle();
+			}
+		} finally {
+			if (logErrors) {
+				readRejectedRows();
+			}
+		}
+		if (statisticsBefore != null) {
+			// in chunked mode with parallel connections only the main session is measured
+			long[] statisticsAfter = getSessionStatistics();
+			if (statisticsAfter != null) {
+				metrics.setRedoSize(statisticsAfter[0] - statisticsBefore[0]);
+				metrics.setUndoSize(statisticsAfter[1] - statisticsBefore[1]);
+			}
+		}
+		metrics.setCountMerged(count);
+		if (countChanges == false) {
+			setupDerivableCounts(count);
+		}
+		return count;
+	}
+	
+	private void appendSourceSelect(StringBuilder sb, List<MergeParameter> layout) throws Exception {
+		if (stagingMode != StagingMode.NONE) {
+			sb.append("select * from ");
+			sb.append(getStagingTableName());
+		} else {
+			appendDeltaSelect(sb, layout);
+		}
+	}
+	
+	/**
+	 * Appends the source select restricted to the rows between the last and the current watermark
+	 */
+	private void appendDeltaSelect(StringBuilder sb, List<MergeParameter> layout) throws Exception {
+		if (watermarkColumn == null) {
+			appendCode(sb, sourceSelectCode, layout);
+			return;
+		}
+		String column = "w." + getColumnName(watermarkColumn);
+		sb.append("select * from (\n");
+		appendCode(sb, sourceSelectCode, layout);
+		sb.append("\n) w\nwhere ");
+		if (watermarkBounded) {
+			sb.append(column);
+			sb.append(" > ? and ");
+			layout.add(MergeParameter.watermark(0));
+		}
+		sb.append(column);
+		sb.append(" <= ?");
+		layout.add(MergeParameter.watermark(1));
+	}
+	
+	/**
+	 * Reads the last watermark and the max value of the watermark column of the new source rows.
+	 * The max value is the upper bound of the merge, therefore rows arriving during the merge are taken by the next run.
+	 * @return false if there are no new rows
+	 * @throws Exception
+	 */
+	private boolean prepareWatermark() throws Exception {
+		Object stored = getWatermarkStore().read(getWatermarkKey());
+		lastWatermark = stored;
+		if ((stored != null) != watermarkBounded) {
+			// the lower bound appears or disappears in the statement
+			buildMergeStatement();
+		}
+		String column = "w." + getColumnName(watermarkColumn);
+		List<MergeParameter> layout = new ArrayList<MergeParameter>();
+		StringBuilder sb = new StringBuilder();
+		sb.append("select max(");
+		sb.append(column);
+		sb.append(") from (\n");
+		appendCode(sb, sourceSelectCode, layout);
+		sb.append("\n) w");
+		if (watermarkBounded) {
+			sb.append("\nwhere ");
+			sb.append(column);
+			sb.append(" > ?");
+			layout.add(MergeParameter.watermark(0));
+		}
+		nextWatermark = null;
+		PreparedStatement ps = connection.prepareStatement(sb.toString());
+		try {
+			ps.setQueryTimeout(queryTimeout);
+			bindParameters(ps, layout, null);
+			ResultSet rs = ps.executeQuery();
+			if (rs.next()) {
+				int type = rs.getMetaData().getColumnType(1);
+				if (type == Types.NUMERIC || type == Types.DECIMAL || type == Types.INTEGER || type == Types.BIGINT) {
+					nextWatermark = rs.getBigDecimal(1);
+				} else if (type == Types.DATE || type == Types.TIMESTAMP) {
+					nextWatermark = rs.getTimestamp(1);
+				} else {
+					nextWatermark = rs.getString(1);
+				}
+			}
+			rs.close();
+		} finally {
+			ps.close();
+		}
+		return nextWatermark != null;
+	}
+	
+	/**
+	 * Writes the watermark of the last execution if the merge runs without commit.
+	 * Must be called after the caller has committed the merge. 
+	 * A watermark table is changed within the transaction of the connection, the caller has to commit it.
+	 * @throws Exception
+	 */
+	public void commitWatermark() throws Exception {
+		if (watermarkPending) {
+			getWatermarkStore().write(getWatermarkKey(), nextWatermark);
+			lastWatermark = nextWatermark;
+			watermarkPending = false;
+		}
+	}
+	
+	/**
+	 * @return the configured store or the table store if a watermark table is set
+	 */
+	public WatermarkStore getWatermarkStore() {
+		if (watermarkStore == null) {
+			if (watermarkTableName == null) {
+				throw new IllegalStateException("Watermark column: " + watermarkColumn + " needs a watermark table or store");
+			}
+			watermarkStore = new TableWatermarkStore(connection, watermarkTableName);
+		}
+		return watermarkStore;
+	}
+	
+	/**
+	 * There is no default key, a key derived from the source select would lose the watermark with every edit of the select.
+	 * @return the configured key
+	 */
+	public String getWatermarkKey() {
+		if (watermarkKey == null) {
+			throw new IllegalStateException("watermark key not set but required for the watermark column: " + watermarkColumn);
+		}
+		return watermarkKey;
+	}
+	
+	/**
+	 * The default name contains a hash of the full target name, therefore targets with the same prefix get different tables.
+	 * A NOLOGGING table is visible for all sessions and gets the SID as suffix, therefore concurrent merges into the same target 
+	 * do not drop the staging table of each other. The rows of a global temporary table are private to the session anyway.
+	 * @return the configured staging table or STG$_ + the first 9 characters of the target table + hash [+ SID]
+	 * @throws SQLException
+	 */
+	public String getStagingTableName() throws SQLException {
+		if (stagingTableName != null) {
+			return stagingTableName;
+		}
+		String tableName = targetTable != null ? targetTable.getName() : unquote(getTableName(targetTableName));
+		String absoluteName = targetTable != null ? targetTable.getAbsoluteName() : targetTableName.trim();
+		StringBuilder sb = new StringBuilder();
+		sb.append("STG$_");
+		sb.append(tableName.length() > 9 ? tableName.substring(0, 9) : tableName);
+		sb.append("_");
+		sb.append(String.format("%08X", absoluteName.toUpperCase().hashCode()));
+		if (stagingMode == StagingMode.NOLOGGING_TABLE) {
+			sb.append("_");
+			sb.append(getSessionId());
+		}
+		return sb.toString();
+	}
+
+	
+	/**
+	 * Loads the source select with a direct path insert into the staging table, 
+	 * creates the key index and gathers the statistics. 
+	 * The merge reads the staging table instead of the source select,
+	 * therefore Oracle does not evaluate a complex source select within the merge plan.
+	 * @return number of staged rows
+	 * @throws Exception
+	 */
+	private int stageSource() throws Exception {
+		String table = getStagingTableName();
+		List<String> columns = new ArrayList<String>();
+		List<String> types = new ArrayList<String>();
+		String columnDeclarations = describeSource(columns, types);
+		boolean exists = existsTable(table);
+		if (stagingMode == StagingMode.NOLOGGING_TABLE && exists) {
+			// left over from an aborted merge
+			executeStatement("drop table " + table + " purge");
+			exists = false;
+		}
+		if (exists) {
+			// the global temporary table is kept and could be created for another source select
+			checkStagingTableLayout(table, columns, types);
+		} else {
+			if (stagingMode == StagingMode.GLOBAL_TEMPORARY) {
+				executeStatement("create global temporary table " + table + " (\n  " + columnDeclarations + ")\non commit preserve rows");
+				if (createStagingIndex) {
+					// an index cannot be created on a temporary table which already contains rows
+					createStagingIndex(table);
+				}
+			} else {
+				executeStatement("create table " + table + " (\n  " + columnDeclarations + ")\nnologging");
+			}
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append("insert /*+ append");
+		if (parallelDegree > 0) {
+			sb.append(" parallel(");
+			sb.append(parallelDegree);
+			sb.append(")");
+		}
+		sb.append(" */ into ");
+		sb.append(table);
+		sb.append(" (");
+		for (int i = 0; i < columns.size(); i++) {
+			if (i > 0) {
+				sb.append(",");
+			}
+			sb.append(columns.get(i));
+		}
+		sb.append(")\nselect * from (\n");
+		List<MergeParameter> layout = new ArrayList<MergeParameter>();
+		appendDeltaSelect(sb, layout);
+		sb.append("\n)");
+		int count = 0;
+		if (enableParallelDml) {
+			setParallelDml(connection, true);
+		}
+		PreparedStatement ps = connection.prepareStatement(sb.toString());
+		runningStatements.add(ps);
+		try {
+			checkCancelled();
+			ps.setQueryTimeout(queryTimeout);
+			bindParameters(ps, layout, null);
+			count = ps.executeUpdate();
+			// the direct path insert must be committed before the merge can read the staging table
+			if (connection.getAutoCommit() == false) {
+				connection.commit();
+			}
+		} catch (SQLException sqle) {
+			if (connection.getAutoCommit() == false) {
+				connection.rollback();
+			}
+			throw new Exception("Load staging table: " + table + " failed: " + sqle.getMessage() + "\nSQL:\n" + sb.toString(), sqle);
+		} finally {
+			runningStatements.remove(ps);
+			ps.close();
+			if (enableParallelDml) {
+				setParallelDml(connection, false);
+			}
+		}
+		if (createStagingIndex && stagingMode == StagingMode.NOLOGGING_TABLE) {
+			createStagingIndex(table);
+		}
+		gatherTableStatistics(table);
+		return count;
+	}
+	
+	/**
+	 * Replaces the content of the exchange partition with the source rows. 
+	 * The rows are loaded with a direct path insert into a table with the same columns and the local indexes of the target,
+	 * this table will be exchanged with the partition and is dropped afterwards with the former content of the partition.
+	 * The source select is restricted to the range or list values of the partition, therefore the exchange can skip the validation.
+	 * @return number of rows in the partition
+	 * @throws Exception
+	 */
+	private int executeExchange() throws Exception {
+		Map<String, String> predicates = buildPartitionPredicates();
+		if (predicates.containsKey(exchangePartitionName) == false) {
+			throw new Exception("Partition: " + exchangePartitionName + " does not exist in table: " + targetTable.getAbsoluteName());
+		}
+		String predicate = predicates.get(exchangePartitionName);
+		String table = getExchangeTableName();
+		if (existsTable(table)) {
+			// left over from an aborted exchange
+			executeStatement("drop table " + table + " purge");
+		}
+		long start = System.nanoTime();
+		executeStatement(buildExchangeTableStatement(table));
+		int count = 0;
+		try {
+			count = loadExchangeTable(table, predicate);
+			for (String indexStatement : buildExchangeIndexStatements(table)) {
+				checkCancelled();
+				executeStatement(indexStatement);
+			}
+			gatherTableStatistics(table);
+			checkCancelled();
+			executeStatement("alter table " + targetTable.getName() + " exchange partition \"" + exchangePartitionName + "\" with table " + table 
+					+ " including indexes without validation update global indexes");
+		} finally {
+			try {
+				executeStatement("drop table " + table + " purge");
+			} catch (Exception e) {
+				// must not hide the result or the error of the exchange, the next exchange cleans up again
+			}
+		}
+		metrics.setExecuteNanos(System.nanoTime() - start);
+		metrics.setCountMerged(count);
+		metrics.setCountInserted(count);
+		metrics.setCountUpdated(0);
+		return count;
+	}
+	
+	/**
+	 * The exchange table needs exactly the columns of the target in the same order but no constraints
+	 */
+	private String buildExchangeTableStatement(String table) {
+		SQLCodeGenerator generator = SQLCodeGenerator.getInstance();
+		StringBuilder sb = new StringBuilder();
+		sb.append("create table ");
+		sb.append(table);
+		sb.append(" (\n  ");
+		for (int i = 0; i < targetTable.getFieldCount(); i++) {
+			SQLField field = targetTable.getFieldAt(i);
+			if (i > 0) {
+				sb.append(",\n  ");
+			}
+			sb.append(generator.buildFieldDeclaration(field));
+			if (field.isNullValueAllowed() == false) {
+				sb.append(" not null");
+			}
+		}
+		sb.append(")\nnologging");
+		return sb.toString();
+	}
+	
+	private int loadExchangeTable(String table, String predicate) throws Exception {
+		List<MergeParameter> layout = new ArrayList<MergeParameter>();
+		StringBuilder sb = new StringBuilder();
+		sb.append("insert /*+ append");
+		if (parallelDegree > 0) {
+			sb.append(" parallel(");
+			sb.append(parallelDegree);
+			sb.append(")");
+		}
+		sb.append(" */ into ");
+		sb.append(table);
+		sb.append(" (");
+		appendInsertColumns(sb, "");
+		sb.append(")\nselect ");
+		appendInsertValues(sb, layout);
+		sb.append("\nfrom (\nselect * from (\n");
+		appendSourceSelect(sb, layout);
+		sb.append("\n) c");
+		if (predicate != null) {
+			sb.append("\nwhere ");
+			sb.append(predicate);
+		}
+		sb.append("\n) s");
+		if (enableParallelDml) {
+			setParallelDml(connection, true);
+		}
+		PreparedStatement ps = connection.prepareStatement(sb.toString());
+		runningStatements.add(ps);
+		try {
+			checkCancelled();
+			ps.setQueryTimeout(queryTimeout);
+			bindParameters(ps, layout, null);
+			int count = ps.executeUpdate();
+			if (connection.getAutoCommit() == false) {
+				connection.commit();
+			}
+			return count;
+		} catch (SQLException sqle) {
+			if (connection.getAutoCommit() == false) {
+				connection.rollback();
+			}
+			throw new Exception("Load exchange table: " + table + " failed: " + sqle.getMessage() + "\nSQL:\n" + sb.toString(), sqle);
+		} finally {
+			runningStatements.remove(ps);
+			ps.close();
+			if (enableParallelDml) {
+				setParallelDml(connection, false);
+			}
+		}
+	}
+	
+	/**
+	 * Builds the statements for the indexes matching the local indexes of the target table. 
+	 * Global indexes are maintained by the exchange itself.
+	 */
+	private List<String> buildExchangeIndexStatements(String table) throws Exception {
+		Set<String> localIndexes = new HashSet<>();
+		PreparedStatement ps = connection.prepareStatement("select INDEX_NAME from ALL_PART_INDEXES where OWNER = ? and TABLE_NAME = ? and LOCALITY = 'LOCAL'");
+		try {
+			ps.setString(1, targetTable.getSchema().getName());
+			ps.setString(2, targetTable.getName());
+			ResultSet rs = ps.executeQuery();
+			while (rs.next()) {
+				localIndexes.add(rs.getString(1));
+			}
+			rs.close();
+		} finally {
+			ps.close();
+		}
+		String tableName = unquote(getTableName(table));
+		String prefix = tableName.length() > 24 ? tableName.substring(0, 24) : tableName;
+		if (table.indexOf('.') > 0) {
+			prefix = getSchemaName(table) + "." + prefix;
+		}
+		List<String> statements = new ArrayList<String>();
+		for (SQLIndex index : targetTable.getIndexes()) {
+			if (localIndexes.contains(index.getName()) == false) {
+				continue;
+			}
+			StringBuilder sb = new StringBuilder();
+			sb.append("create ");
+			if (index.isUnique()) {
+				sb.append("unique ");
+			}
+			sb.append("index ");
+			sb.append(prefix);
+			sb.append("_I");
+			sb.append(statements.size() + 1);
+			sb.append(" on ");
+			sb.append(table);
+			sb.append(" (");
+			for (int i = 0; i < index.getCountFields(); i++) {
+				SQLIndex.IndexField field = index.getFieldByOrdinalPosition(i + 1);
+				if (field.getName().startsWith("SYS_NC")) {
+					throw new Exception("Local index: " + index.getName() + " is function based and cannot be created for the exchange table");
+				}
+				if (i > 0) {
+					sb.append(",");
+				}
+				sb.append(getColumnName(field.getName()));
+				if ("D".equals(field.getSortOrder())) {
+					sb.append(" desc");
+				}
+			}
+			sb.append(") nologging");
+			if (parallelDegree > 0) {
+				sb.append(" parallel ");
+				sb.append(parallelDegree);
+			}
+			statements.add(sb.toString());
+		}
+		if (statements.size() < localIndexes.size()) {
+			throw new Exception("Table: " + targetTable.getAbsoluteName() + " has local indexes which are not loaded: " + localIndexes);
+		}
+		return statements;
+	}
+	
+	private void gatherTableStatistics(String table) throws Exception {
+		CallableStatement cs = connection.prepareCall(
+				"begin dbms_stats.gather_table_stats(ownname => ?, tabname => ?, estimate_percent => dbms_stats.auto_sample_size, method_opt => 'for all columns size 1', cascade => true, no_invalidate => false); end;");
+		try {
+			cs.setString(1, unquote(getSchemaName(table)).toUpperCase());
+			cs.setString(2, unquote(getTableName(table)).toUpperCase());
+			cs.execute();
+		} finally {
+			cs.close();
+		}
+	}
+	
+	/**
+	 * Creates the declarations of the staging table columns from the result set meta data of the source select.
+	 * The column names are quoted, the staging table provides exactly the same column names as the source select.
+	 * @param columns takes the quoted column names
+	 * @param types takes the type names without length, precision or scale
+	 * @return the column declarations
+	 * @throws Exception
+	 */
+	private String describeSource(List<String> columns, List<String> types) throws Exception {
+		StringBuilder sb = new StringBuilder();
+		sb.append("select * from (\n");
+		List<MergeParameter> layout = new ArrayList<MergeParameter>();
+		appendCode(sb, sourceSelectCode, layout);
+		sb.append("\n) where 1 = 0");
+		StringBuilder declarations = new StringBuilder();
+		PreparedStatement ps = connection.prepareStatement(sb.toString());
+		try {
+			bindParameters(ps, layout, null);
+			ResultSet rs = ps.executeQuery();
+			ResultSetMetaData md = rs.getMetaData();
+			for (int i = 1; i <= md.getColumnCount(); i++) {
+				String column = "\"" + md.getColumnLabel(i) + "\"";
+				columns.add(column);
+				if (i > 1) {
+					declarations.append(",\n  ");
+				}
+				declarations.append(column);
+				declarations.append(" ");
+				String type = getTypeDeclaration(md, i);
+				declarations.append(type);
+				types.add(getBaseType(type));
+			}
+			rs.close();
+		} finally {
+			ps.close();
+		}
+		return declarations.toString();
+	}
+	
+	private static String getTypeDeclaration(ResultSetMetaData md, int index) throws SQLException {
+		String typeName = md.getColumnTypeName(index);
+		int precision = md.getPrecision(index);
+		int scale = md.getScale(index);
+		if ("VARCHAR2".equals(typeName) || "NVARCHAR2".equals(typeName) || "CHAR".equals(typeName) || "NCHAR".equals(typeName) || "RAW".equals(typeName)) {
+			if (precision > 0) {
+				return typeName + "(" + precision + ")";
+			} else {
+				// e.g. null as column
+				return "VARCHAR2(4000)";
+			}
+		} else if ("NUMBER".equals(typeName)) {
+			if (precision > 0 && scale >= 0) {
+				return "NUMBER(" + precision + "," + scale + ")";
+			} else {
+				return "NUMBER";
+			}
+		} else {
+			return typeName;
+		}
+	}
+	
+	private static String getBaseType(String type) {
+		int pos = type.indexOf('(');
+		return pos > 0 ? type.substring(0, pos) : type;
+	}
+	
+	/**
+	 * Checks if the existing staging table has the columns of the source select in the same order and with the same types
+	 * @param table the staging table
+	 * @param columns quoted column names of the source select
+	 * @param types base types of the source select
+	 * @throws Exception if the layout differs
+	 */
+	private void checkStagingTableLayout(String table, List<String> columns, List<String> types) throws Exception {
+		List<String> tableColumns = new ArrayList<String>();
+		List<String> tableTypes = new ArrayList<String>();
+		PreparedStatement ps = connection.prepareStatement("select COLUMN_NAME, DATA_TYPE from ALL_TAB_COLUMNS where OWNER = ? and TABLE_NAME = ? order by COLUMN_ID");
+		try {
+			ps.setString(1, unquote(getSchemaName(table)).toUpperCase());
+			ps.setString(2, unquote(getTableName(table)).toUpperCase());
+			ResultSet rs = ps.executeQuery();
+			while (rs.next()) {
+				tableColumns.add("\"" + rs.getString(1) + "\"");
+				tableTypes.add(getBaseType(rs.getString(2)));
+			}
+			rs.close();
+		} finally {
+			ps.close();
+		}
+		if (tableColumns.equals(columns) == false || tableTypes.equals(types) == false) {
+			throw new Exception("Staging table: " + table + " has the columns: " + tableColumns + " " + tableTypes 
+					+ " but the source select provides: " + columns + " " + types 
+					+ ". Please drop the staging table or configure another staging table.");
+		}
+	}
+	
+	private void createStagingIndex(String table) throws Exception {
+		String tableName = unquote(getTableName(table));
+		String indexName = (tableName.length() > 26 ? tableName.substring(0, 26) : tableName) + "_KEY";
+		if (table.indexOf('.') > 0) {
+			indexName = getSchemaName(table) + "." + indexName;
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append("create index ");
+		sb.append(indexName);
+		sb.append(" on ");
+		sb.append(table);
+		sb.append(" (");
+		boolean firstLoop = true;
+		for (String pk : targetTable.getPrimaryKeyFieldNames()) {
+			if (firstLoop) {
+				firstLoop = false;
+			} else {
+				sb.append(",");
+			}
+			sb.append(getColumnName(pk));
+		}
+		sb.append(")");
+		if (stagingMode == StagingMode.NOLOGGING_TABLE) {
+			sb.append(" nologging");
+		}
+		executeStatement(sb.toString());
+	}
+	
+	private boolean existsTable(String table) throws Exception {
+		PreparedStatement ps = connection.prepareStatement("select count(*) from ALL_TABLES where OWNER = ? and TABLE_NAME = ?");
+		try {
+			ps.setString(1, unquote(getSchemaName(table)).toUpperCase());
+			ps.setString(2, unquote(getTableName(table)).toUpperCase());
+			ResultSet rs = ps.executeQuery();
+			boolean exists = rs.next() && rs.getInt(1) > 0;
+			rs.close();
+			return exists;
+		} finally {
+			ps.close();
+		}
+	}
+	
+	/**
+	 * Executes DDL like create, drop or index statements. The statement can be interrupted by cancel().
+	 * Does not check the cancel flag itself because it is also used to clean up after a cancel.
+	 */
+	private void executeStatement(String sql) throws Exception {
+		Statement stat = connection.createStatement();
+		runningStatements.add(stat);
+		try {
+			stat.execute(sql);
+		} catch (SQLException sqle) {
+			throw new Exception("Statement failed: " + sqle.getMessage() + "\nSQL:\n" + sql, sqle);
+		} finally {
+			runningStatements.remove(stat);
+			stat.close();
+		}
+	}
+	
+	/**
+	 * Drops the NOLOGGING staging table or truncates the global temporary table
+	 */
+	private void cleanupStaging() {
+		try {
+			if (stagingMode == StagingMode.NOLOGGING_TABLE) {
+				executeStatement("drop table " + getStagingTableName() + " purge");
+			} else {
+				executeStatement("truncate table " + getStagingTableName());
+			}
+		} catch (Exception e) {
+			// must not hide the result or the error of the merge, the next merge cleans up again
+		}
+	}
+	
+	private int executeSingle() throws Exception {
+		long start = System.nanoTime();
+		PreparedStatement ps = prepareStatement();
+		metrics.setPrepareNanos(System.nanoTime() - start);
+		int count = 0;
+		boolean success = false;
+		MergeProgressMonitor monitor = null;
+		runningStatements.add(ps);
+		try {
+			checkCancelled();
+			if (enableParallelDml) {
+				setParallelDml(connection, true);
+			}
+			if (progressConnectionProvider != null && listeners.isEmpty() == false) {
+				monitor = new MergeProgressMonitor(this, progressConnectionProvider, getSessionId(), progressIntervalMillis);
+				monitor.start();
+			}
+			try {
+				start = System.nanoTime();
+				count = ps.executeUpdate();
+				metrics.setExecuteNanos(System.nanoTime() - start);
+			} catch (SQLException sqle) {
+				if (doCommit && connection.getAutoCommit() == false) {
+					connection.rollback();
+				}
+				if (cancelled) {
+					throw new Exception("Merge into " + targetTableName + " cancelled: " + sqle.getMessage(), sqle);
+				}
+				invalidateCaches();
+				throw new Exception("Execute merge failed: " + sqle.getMessage() + "\nSQL:\n" + currentMergeSQLCode, sqle);
+			}
+			if (doCommit && connection.getAutoCommit() == false) {
+				start = System.nanoTime();
+				connection.commit();
+				metrics.setCommitNanos(System.nanoTime() - start);
+			}
+			success = true;
+		} finally {
+			if (monitor != null) {
+				monitor.stop();
+			}
+			runningStatements.remove(ps);
+			if (success) {
+				currentPlan.releaseStatement(connection, ps);
+			} else {
+				ps.close();
+			}
+			if (enableParallelDml) {
+				setParallelDml(connection, false);
+			}
 		}
 		return count;
 	}
 	
+	private long getSessionId() throws SQLException {
+		if (sessionId != null) {
+			return sessionId;
+		}
+		Statement stat = connection.createStatement();
+		try {
+			ResultSet rs = stat.executeQuery("select sys_context('USERENV', 'SID') from dual");
+			long sid = 0;
+			if (rs.next()) {
+				sid = rs.getLong(1);
+			}
+			rs.close();
+			sessionId = sid;
+			return sid;
+		} finally {
+			stat.close();
+		}
+	}
+	
+	/**
+	 * The merge only returns the sum of all affected rows. 
+	 * If only one operation is enabled, the count belongs to this operation.
+	 * @param count
+	 */
+	private void setupDerivableCounts(int count) {
+		if (allowInsert && allowUpdate == false) {
+			metrics.setCountInserted(count);
+			metrics.setCountUpdated(0);
+			metrics.setCountDeleted(0);
+		} else if (allowInsert == false && allowUpdate && allowDelete == false) {
+			metrics.setCountInserted(0);
+			metrics.setCountUpdated(count);
+			metrics.setCountDeleted(0);
+		}
+	}
+	
+	/**
+	 * @return redo size and undo size of the session or null if V$MYSTAT cannot be read
+	 */
+	private long[] getSessionStatistics() {
+		long[] values = new long[2];
+		try {
+			Statement stat = connection.createStatement();
+			try {
+				ResultSet rs = stat.executeQuery(SQL_SESSION_STATISTICS);
+				while (rs.next()) {
+					if ("redo size".equals(rs.getString(1))) {
+						values[0] = rs.getLong(2);
+					} else {
+						values[1] = rs.getLong(2);
+					}
+				}
+				rs.close();
+			} finally {
+				stat.close();
+			}
+			return values;
+		} catch (SQLException sqle) {
+			// missing privileges for V$MYSTAT, do not try it again
+			collectSessionStatistics = false;
+			return null;
+		}
+	}
+	
+	/**
+	 * @return the timings and statistics of init(), buildMergeStatement() and the last execute()
+	 */
+	public MergeMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Runs EXPLAIN PLAN for the current merge statement. 
+	 * The parameters are explained as bind variables without values.
+	 * The rows in PLAN_TABLE are rolled back to a savepoint, therefore uncommitted work of the caller is kept.
+	 * @return the plan
+	 * @throws Exception
+	 */
+	public ExplainPlan explain() throws Exception {
+		if (currentMergeSQLCode == null) {
+			throw new IllegalStateException("Merge SQL statement not created, please call buildMergeStatement() before");
+		}
+		if (connection.getAutoCommit()) {
+			return explain(null);
+		}
+		boolean transactionWasOpen = isTransactionOpen();
+		Savepoint savepoint = connection.setSavepoint();
+		try {
+			return explain(savepoint);
+		} finally {
+			connection.rollback(savepoint);
+			if (transactionWasOpen == false) {
+				// the transaction contains only the plan rows. 
+				// It must be ended because alter session enable parallel dml fails with ORA-12841 within a transaction
+				connection.rollback();
+			}
+		}
+	}
+	
+	private boolean isTransactionOpen() throws SQLException {
+		Statement stat = connection.createStatement();
+		try {
+			ResultSet rs = stat.executeQuery("select dbms_transaction.local_transaction_id from dual");
+			boolean open = rs.next() && rs.getString(1) != null;
+			rs.close();
+			return open;
+		} finally {
+			stat.close();
+		}
+	}
+	
+	/**
+	 * @param savepoint if not null the plan rows are removed by the caller with a rollback to this savepoint
+	 */
+	private ExplainPlan explain(Savepoint savepoint) throws Exception {
+		String statementId = "ORAMERGE" + Long.toHexString(System.nanoTime());
+		ExplainPlan plan = new ExplainPlan();
+		Statement stat = connection.createStatement();
+		try {
+			stat.execute("explain plan set statement_id = '" + statementId + "' for\n" + replaceParameterMarkers(currentMergeSQLCode));
+		} catch (SQLException sqle) {
+			throw new Exception("Explain merge failed: " + sqle.getMessage() + "\nSQL:\n" + currentMergeSQLCode, sqle);
+		} finally {
+			stat.close();
+		}
+		PreparedStatement ps = connection.prepareStatement(
+				"select ID, PARENT_ID, DEPTH, OPERATION, OPTIONS, OBJECT_OWNER, OBJECT_NAME, COST, CARDINALITY, BYTES, DISTRIBUTION, PARTITION_START, PARTITION_STOP\n"
+				+ "from PLAN_TABLE where STATEMENT_ID = ? order by ID");
+		try {
+			ps.setString(1, statementId);
+			ResultSet rs = ps.executeQuery();
+			while (rs.next()) {
+				PlanStep step = new PlanStep();
+				step.setId(rs.getInt("ID"));
+				int parentId = rs.getInt("PARENT_ID");
+				step.setParentId(rs.wasNull() ? null : parentId);
+				step.setDepth(rs.getInt("DEPTH"));
+				step.setOperation(rs.getString("OPERATION"));
+				step.setOptions(rs.getString("OPTIONS"));
+				step.setObjectOwner(rs.getString("OBJECT_OWNER"));
+				step.setObjectName(rs.getString("OBJECT_NAME"));
+				step.setCost(getLong(rs, "COST"));
+				step.setCardinality(getLong(rs, "CARDINALITY"));
+				step.setBytes(getLong(rs, "BYTES"));
+				step.setDistribution(rs.getString("DISTRIBUTION"));
+				step.setPartitionStart(rs.getString("PARTITION_START"));
+				step.setPartitionStop(rs.getString("PARTITION_STOP"));
+				plan.addStep(step);
+			}
+			rs.close();
+		} finally {
+			ps.close();
+		}
+		if (savepoint == null) {
+			ps = connection.prepareStatement("delete from PLAN_TABLE where STATEMENT_ID = ?");
+			try {
+				ps.setString(1, statementId);
+				ps.executeUpdate();
+			} finally {
+				ps.close();
+			}
+		}
+		lastExplainPlan = plan;
+		return plan;
+	}
+	
+	private static Long getLong(ResultSet rs, String column) throws SQLException {
+		long value = rs.getLong(column);
+		if (rs.wasNull()) {
+			return null;
+		} else {
+			return value;
+		}
+	}
+	
+	private void checkExplainPlan(ExplainPlan plan) throws Exception {
+		if (explainMaxCost != null) {
+			Long cost = plan.getCost();
+			if (cost != null && cost > explainMaxCost) {
+				throw new Exception("Merge aborted: estimated cost " + cost + " exceeds the maximum cost " + explainMaxCost + "\nPlan:\n" + plan);
+			}
+		}
+		if (failOnTargetFullScan) {
+			PlanStep step = plan.getFullTableScan(targetTable.getSchema().getName(), targetTable.getName());
+			if (step != null) {
+				throw new Exception("Merge aborted: plan contains a full scan of the target table " + targetTable.getAbsoluteName() + "\nPlan:\n" + plan);
+			}
+		}
+	}
+	
+	/**
+	 * Appends user provided SQL code and replaces the named parameters with ?
+	 * @param sb the statement
+	 * @param code source select or where condition
+	 * @param layout gets the named parameters in bind order
+	 */
+	private static void appendCode(StringBuilder sb, String code, List<MergeParameter> layout) {
+		List<String> names = new ArrayList<String>();
+		sb.append(replaceNamedParameters(code, names));
+		for (String name : names) {
+			layout.add(MergeParameter.named(name, Types.VARCHAR));
+		}
+	}
+	
+	/**
+	 * Replaces named parameters like :load_date with ?. 
+	 * Literals, quoted identifiers and comments are left untouched.
+	 * @param sql
+	 * @param names gets the upper case names in the order of their occurrence
+	 * @return sql with ? instead of the named parameters
+	 */
+	static String replaceNamedParameters(String sql, List<String> names) {
+		StringBuilder sb = new StringBuilder();
+		int length = sql.length();
+		int i = 0;
+		while (i < length) {
+			char c = sql.charAt(i);
+			if (c == '\'' || c == '"') {
+				int end = sql.indexOf(c, i + 1);
+				end = end < 0 ? length : end + 1;
+				sb.append(sql, i, end);
+				i = end;
+			} else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+				int end = sql.indexOf('\n', i);
+				end = end < 0 ? length : end;
+				sb.append(sql, i, end);
+				i = end;
+			} else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+				int end = sql.indexOf("*/", i + 2);
+				end = end < 0 ? length : end + 2;
+				sb.append(sql, i, end);
+				i = end;
+			} else if (c == ':' && i + 1 < length && Character.isLetter(sql.charAt(i + 1)) 
+					&& (i == 0 || Character.isLetterOrDigit(sql.charAt(i - 1)) == false)) {
+				int end = i + 1;
+				while (end < length && isParameterNameChar(sql.charAt(end))) {
+					end++;
+				}
+				names.add(sql.substring(i + 1, end).toUpperCase());
+				sb.append('?');
+				i = end;
+			} else {
+				sb.append(c);
+				i++;
+			}
+		}
+		return sb.toString();
+	}
+	
+	private static boolean isParameterNameChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+	}
+	
+	/**
+	 * EXPLAIN PLAN cannot bind values, therefore ? are replaced by named bind variables. 
+	 * Literals, quoted identifiers and comments are left untouched.
+	 * @param sql
+	 * @return sql with :p1, :p2 ... instead of ?
+	 */
+	static String replaceParameterMarkers(String sql) {
+		StringBuilder sb = new StringBuilder();
+		int paramIndex = 1;
+		int length = sql.length();
+		int i = 0;
+		while (i < length) {
+			char c = sql.charAt(i);
+			if (c == '\'' || c == '"') {
+				int end = sql.indexOf(c, i + 1);
+				end = end < 0 ? length : end + 1;
+				sb.append(sql, i, end);
+				i = end;
+			} else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+				int end = sql.indexOf('\n', i);
+				end = end < 0 ? length : end;
+				sb.append(sql, i, end);
+				i = end;
+			} else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+				int end = sql.indexOf("*/", i + 2);
+				end = end < 0 ? length : end + 2;
+				sb.append(sql, i, end);
+				i = end;
+			} else if (c == '?') {
+				sb.append(":p");
+				sb.append(paramIndex++);
+				i++;
+			} else {
+				sb.append(c);
+				i++;
+			}
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * @return the plan of the last explain() or null
+	 */
+	public ExplainPlan getLastExplainPlan() {
+		return lastExplainPlan;
+	}
+	
+	private static void setParallelDml(Connection conn, boolean enable) throws SQLException {
+		Statement stat = conn.createStatement();
+		try {
+			stat.execute("alter session " + (enable ? "enable" : "disable") + " parallel dml");
+		} finally {
+			stat.close();
+		}
+	}
+	
+	/**
+	 * The table could have been changed, do not use the cached meta data and plan again
+	 */
+	private void invalidateCaches() throws SQLException {
+		if (useMetadataCache) {
+			model.invalidateCachedTable(targetTable.getSchema().getName(), targetTable.getName());
+		}
+		if (currentPlan != null && currentPlan.getFingerprint() != null) {
+			MergePlanCache.getInstance().invalidate(currentPlan.getFingerprint());
+		}
+	}
+	
+	private int executeChunked() throws Exception {
+		if (doCommit == false) {
+			throw new IllegalStateException("Chunked merge commits every chunk and cannot be used without commit");
+		}
+		lastChunks = createChunks();
+		ChunkedMergeExecutor executor = new ChunkedMergeExecutor(this, lastChunks);
+		try {
+			return executor.execute(connection, chunkConnectionProvider, chunkThreads);
+		} catch (Exception e) {
+			invalidateCaches();
+			throw new Exception("Execute chunked merge failed: " + e.getMessage() + "\nSQL:\n" + currentMergeSQLCode, e);
+		}
+	}
+	
+	/**
+	 * Executes the merge for one chunk and commits it
+	 * @param conn connection used for this chunk
+	 * @param chunk
+	 * @return number of merged records
+	 * @throws Exception
+	 */
+	int executeChunk(Connection conn, MergeChunk chunk) throws Exception {
+		PreparedStatement ps = prepareStatement(conn, chunk);
+		if (enableParallelDml) {
+			setParallelDml(conn, true);
+		}
+		boolean success = false;
+		runningStatements.add(ps);
+		try {
+			checkCancelled();
+			int count = ps.executeUpdate();
+			if (conn.getAutoCommit() == false) {
+				conn.commit();
+			}
+			success = true;
+			return count;
+		} catch (SQLException sqle) {
+			if (conn.getAutoCommit() == false) {
+				conn.rollback();
+			}
+			throw sqle;
+		} finally {
+			runningStatements.remove(ps);
+			if (success && chunk.getSql() == null) {
+				currentPlan.releaseStatement(conn, ps);
+			} else {
+				ps.close();
+			}
+			if (enableParallelDml) {
+				setParallelDml(conn, false);
+			}
+		}
+	}
+	
+	private List<MergeChunk> createChunks() throws Exception {
+		List<MergeChunk> chunks = new ArrayList<MergeChunk>();
+		if (chunkMode == ChunkMode.ORA_HASH) {
+			for (int i = 0; i < chunkCount; i++) {
+				chunks.add(new MergeChunk(i, i));
+			}
+		} else if (chunkMode == ChunkMode.KEY_RANGE) {
+			BigDecimal min = null;
+			BigDecimal max = null;
+			List<MergeParameter> layout = new ArrayList<MergeParameter>();
+			StringBuilder sb = new StringBuilder();
+			sb.append("select min(c." + getColumnName(chunkColumn) + "), max(c." + getColumnName(chunkColumn) + ") from (\n");
+			appendSourceSelect(sb, layout);
+			sb.append("\n) c");
+			PreparedStatement stat = connection.prepareStatement(sb.toString());
+			try {
+				bindParameters(stat, layout, null);
+				ResultSet rs = stat.executeQuery();
+				if (rs.next()) {
+					min = rs.getBigDecimal(1);
+					max = rs.getBigDecimal(2);
+				}
+				rs.close();
+			} finally {
+				stat.close();
+			}
+			if (min == null || max == null) {
+				// source is empty or contains only null keys
+				chunks.add(new MergeChunk(0, null, null, 1));
+				return chunks;
+			}
+			BigDecimal width = max.subtract(min).divide(BigDecimal.valueOf(chunkCount), 10, RoundingMode.UP);
+			BigDecimal lower = min;
+			for (int i = 0; i < chunkCount; i++) {
+				BigDecimal upper = null;
+				if (i == chunkCount - 1 || width.signum() == 0) {
+					// the last chunk must contain the max value
+					upper = max.add(BigDecimal.ONE);
+				} else {
+					upper = min.add(width.multiply(BigDecimal.valueOf(i + 1)));
+				}
+				// the first chunk takes the rows with a null key
+				chunks.add(new MergeChunk(i, lower, upper, i == 0 ? 1 : 0));
+				if (width.signum() == 0) {
+					break;
+				}
+				lower = upper;
+			}
+		} else if (chunkMode == ChunkMode.PARTITION) {
+			createPartitionChunks(chunks);
+		}
+		return chunks;
+	}
+	
+	/**
+	 * Creates one chunk per partition of the target table. Every chunk merges with the partition extended table name
+	 * and only reads the source rows which belong into the partition.
+	 * Without a selection of partitions an additional chunk takes the rows which does not fit into any partition,
+	 * therefore they fail or create interval partitions like in a single merge.
+	 * @param chunks
+	 * @throws Exception
+	 */
+	private void createPartitionChunks(List<MergeChunk> chunks) throws Exception {
+		Map<String, String> predicates = buildPartitionPredicates();
+		for (String name : chunkPartitionNames) {
+			if (predicates.containsKey(name) == false) {
+				throw new Exception("Partition: " + name + " does not exist in table: " + targetTable.getAbsoluteName());
+			}
+		}
+		try {
+			for (Map.Entry<String, String> entry : predicates.entrySet()) {
+				if (entry.getKey() == null) {
+					if (chunkPartitionNames.isEmpty()) {
+						chunks.add(createPartitionChunk(chunks.size(), null, entry.getValue()));
+					}
+				} else if (chunkPartitionNames.isEmpty() || chunkPartitionNames.contains(entry.getKey())) {
+					chunks.add(createPartitionChunk(chunks.size(), entry.getKey(), entry.getValue()));
+				}
+			}
+		} finally {
+			chunkPartitionName = null;
+			chunkPredicate = null;
+			parameterLayout = null;
+		}
+	}
+	
+	/**
+	 * Builds the predicates for the source rows of every partition of the target table from the high values.
+	 * @return partition name and predicate in partition order, a null predicate takes all rows, 
+	 * the last entry with a null name describes the rows which does not fit into any partition
+	 * @throws Exception
+	 */
+	private Map<String, String> buildPartitionPredicates() throws Exception {
+		if (targetTable.isPartitioned() == false) {
+			throw new Exception("Table: " + targetTable.getAbsoluteName() + " is not partitioned");
+		}
+		String type = targetTable.getPartitioningType();
+		if ("RANGE".equals(type) == false && "LIST".equals(type) == false) {
+			throw new Exception("Only range and list partitioning is supported, table: " + targetTable.getAbsoluteName() + " is " + type + " partitioned");
+		}
+		if (targetTable.getPartitionKeyColumns().size() != 1) {
+			throw new Exception("Only one partition key column is supported, table: " + targetTable.getAbsoluteName() + " has: " + targetTable.getPartitionKeyColumns());
+		}
+		String keyColumn = targetTable.getPartitionKeyColumns().get(0);
+		if (isFixedColumn(keyColumn)) {
+			throw new Exception("The partition key column: " + keyColumn + " must be part of the source select but it is a fixed column");
+		}
+		String key = "c." + getColumnName(keyColumn);
+		Map<String, String> predicates = new LinkedHashMap<>();
+		boolean rangePartitioned = "RANGE".equals(type);
+		boolean catchAll = false;
+		String defaultPartition = null;
+		List<String> listValues = new ArrayList<>();
+		boolean listContainsNull = false;
+		String previousHighValue = null;
+		for (SQLPartition p : targetTable.getPartitions()) {
+			String highValue = p.getHighValue() != null ? p.getHighValue().trim() : "";
+			String predicate = null;
+			if (rangePartitioned) {
+				if ("MAXVALUE".equalsIgnoreCase(highValue)) {
+					// null keys are sorted behind all values and belong into the maxvalue partition
+					predicate = previousHighValue != null ? "(" + key + " >= " + previousHighValue + " or " + key + " is null)" : null;
+					catchAll = true;
+				} else if (previousHighValue != null) {
+					predicate = key + " >= " + previousHighValue + " and " + key + " < " + highValue;
+				} else {
+					predicate = key + " < " + highValue;
+				}
+				previousHighValue = highValue;
+			} else if ("DEFAULT".equalsIgnoreCase(highValue)) {
+				defaultPartition = p.getName();
+				catchAll = true;
+			} else {
+				predicate = key + " in (" + highValue + ")";
+				if (containsNullValue(highValue)) {
+					predicate = "(" + predicate + " or " + key + " is null)";
+					listContainsNull = true;
+				}
+				listValues.add(highValue);
+			}
+			predicates.put(p.getName(), predicate);
+		}
+		if (rangePartitioned == false) {
+			// the default partition can only be described by the values of all other partitions
+			String remainder = buildListRemainderPredicate(key, listValues, listContainsNull);
+			if (defaultPartition != null) {
+				predicates.put(defaultPartition, remainder);
+			}
+			if (catchAll == false) {
+				predicates.put(null, remainder);
+			}
+		} else if (catchAll == false && previousHighValue != null) {
+			predicates.put(null, "(" + key + " >= " + previousHighValue + " or " + key + " is null)");
+		}
+		return predicates;
+	}
+	
+	private MergeChunk createPartitionChunk(int index, String partitionName, String predicate) throws Exception {
+		chunkPartitionName = partitionName;
+		chunkPredicate = predicate;
+		String sql = generateMergeStatement();
+		return new MergeChunk(index, partitionName, sql, parameterLayout);
+	}
+	
+	private static boolean containsNullValue(String listValues) {
+		for (String value : listValues.split(",")) {
+			if ("NULL".equalsIgnoreCase(value.trim())) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static String buildListRemainderPredicate(String key, List<String> listValues, boolean listContainsNull) {
+		if (listValues.isEmpty()) {
+			return null;
+		}
+		StringBuilder sb = new StringBuilder();
+		// not in would never be true if one of the values is null
+		sb.append("case when ");
+		sb.append(key);
+		sb.append(" in (");
+		for (int i = 0; i < listValues.size(); i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(listValues.get(i));
+		}
+		sb.append(") then 0 else 1 end = 1");
+		if (listContainsNull) {
+			sb.append(" and ");
+			sb.append(key);
+			sb.append(" is not null");
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * @return the chunks of the last execution with their merged counts or null if not chunked
+	 */
+	public List<MergeChunk> getLastChunks() {
+		return lastChunks;
+	}
+	
 	public Connection getConnection() {
 		return connection;
 	}
 
 	public void setConnection(Connection connection) {
 		this.connection = connection;
+		this.sessionId = null;
 	}
 
 	public String getTargetTableName() {
@@ -471,25 +2824,45 @@ public class OracleMerge {
 		this.allowDelete = allowDelete;
 	}
 	
+	/**
+	 * Sets the value of a named parameter like :load_date used in the source select or the where conditions.
+	 * The value is bound, therefore repeated merges with different values share the same cursor.
+	 * @param name with or without the leading colon, not case sensitive
+	 * @param value can be null
+	 */
+	public void setParameter(String name, Object value) {
+		if (name == null || name.trim().isEmpty()) {
+			throw new IllegalArgumentException("name cannot be null or empty!");
+		}
+		name = name.trim();
+		if (name.startsWith(":")) {
+			name = name.substring(1);
+		}
+		namedParameterValues.put(name.toUpperCase(), value);
+	}
+	
 	public void setFixedColumnValue(String name, Object value) {
 		if (name != null && name.trim().isEmpty() == false) {
-			ColumnValue cv = new ColumnValue(name.trim().toUpperCase());
+			ColumnValue cv = fixedColumnValueMap.get(name.trim().toUpperCase());
+			if (cv == null) {
+				cv = new ColumnValue(name.trim().toUpperCase());
+				fixedColumnValueList.add(cv);
+				fixedColumnValueMap.put(cv.getColumnName(), cv);
+			}
+			// a new value for an existing column only needs a rebind of the current plan
 			cv.setValue(value);
-			fixedColumnValueList.add(cv);
 		}
 	}
 	
 	public void addExcludeColumn(String columnName) {
 		if (columnName != null && columnName.trim().isEmpty() == false) {
-			if (excludeColumnList.contains(columnName.trim().toUpperCase()) == false) {
-				excludeColumnList.add(columnName.trim().toUpperCase());
-			}
+			excludeColumnSet.add(columnName.trim().toUpperCase());
 		}
 	}
 	
 	public boolean isUpdateColumnEnabled(String column) {
-		if (updateOnlyColumnList != null && updateOnlyColumnList.size() > 0) {
-			return updateOnlyColumnList.contains(column.trim().toUpperCase());
+		if (updateOnlyColumnSet.isEmpty() == false) {
+			return updateOnlyColumnSet.contains(column.trim().toUpperCase());
 		} else {
 			return true; // we have no updateColumn list, therefore all columns can be updated
 		}
@@ -497,12 +2870,371 @@ public class OracleMerge {
 
 	public void addUpdateOnlyColumn(String columnName) {
 		if (columnName != null && columnName.trim().isEmpty() == false) {
-			if (updateOnlyColumnList.contains(columnName.trim().toUpperCase()) == false) {
-				updateOnlyColumnList.add(columnName.trim().toUpperCase());
+			updateOnlyColumnSet.add(columnName.trim().toUpperCase());
+		}
+	}
+
+	public boolean isUpdateOnlyChangedRows() {
+		return updateOnlyChangedRows;
+	}
+
+	/**
+	 * Adds a predicate to the update part which skips matched rows without any changed value.
+	 * The predicate is combined with the update where condition.
+	 * Note: the delete where condition only applies to rows which are updated.
+	 * @param updateOnlyChangedRows
+	 */
+	public void setUpdateOnlyChangedRows(boolean updateOnlyChangedRows) {
+		this.updateOnlyChangedRows = updateOnlyChangedRows;
+	}
+
+	public boolean isCompareByHash() {
+		return compareByHash;
+	}
+
+	/**
+	 * Detects changed rows by comparing standard_hash fingerprints of the updated columns 
+	 * instead of comparing every column. Needs the option update only changed rows.
+	 * @param compareByHash
+	 */
+	public void setCompareByHash(boolean compareByHash) {
+		this.compareByHash = compareByHash;
+	}
+
+	public String getHashColumn() {
+		return hashColumn;
+	}
+
+	/**
+	 * Target column (RAW(16)) keeping the fingerprint of the updated columns.
+	 * The column is set by update and insert and used to detect changed rows.
+	 * @param hashColumn
+	 */
+	public void setHashColumn(String hashColumn) {
+		if (hashColumn != null && hashColumn.trim().isEmpty() == false) {
+			this.hashColumn = hashColumn.trim().toUpperCase();
+		} else {
+			this.hashColumn = null;
+		}
+	}
+
+	public NullSafeJoinMode getNullSafeJoinMode() {
+		return nullSafeJoinMode;
+	}
+
+	/**
+	 * Sets how nullable key columns are compared in the on clause
+	 * @param mode OR_EXPANSION (default), NVL_SENTINEL or SYS_OP_MAP_NONNULL
+	 */
+	public void setNullSafeJoinMode(String mode) {
+		this.nullSafeJoinMode = NullSafeJoinMode.parse(mode);
+	}
+
+	public void setNullSafeJoinMode(NullSafeJoinMode mode) {
+		if (mode == null) {
+			mode = NullSafeJoinMode.OR_EXPANSION;
+		}
+		this.nullSafeJoinMode = mode;
+	}
+
+	/**
+	 * Sets how a particular nullable key column is compared in the on clause
+	 * @param columnName key column
+	 * @param mode OR_EXPANSION, NVL_SENTINEL or SYS_OP_MAP_NONNULL, null or empty uses the general mode
+	 */
+	public void setNullSafeJoinMode(String columnName, String mode) {
+		if (columnName != null && columnName.trim().isEmpty() == false) {
+			if (mode == null || mode.trim().isEmpty()) {
+				nullSafeJoinModeMap.remove(columnName.trim().toUpperCase());
+			} else {
+				nullSafeJoinModeMap.put(columnName.trim().toUpperCase(), NullSafeJoinMode.parse(mode));
+			}
+		}
+	}
+
+	public Long getExplainMaxCost() {
+		return explainMaxCost;
+	}
+
+	/**
+	 * execute() explains the merge before and aborts if the estimated cost exceeds this value
+	 * @param explainMaxCost null or 0 disables the check
+	 */
+	public void setExplainMaxCost(Long explainMaxCost) {
+		if (explainMaxCost != null && explainMaxCost > 0) {
+			this.explainMaxCost = explainMaxCost;
+		} else {
+			this.explainMaxCost = null;
+		}
+	}
+
+	public boolean isFailOnTargetFullScan() {
+		return failOnTargetFullScan;
+	}
+
+	/**
+	 * execute() explains the merge before and aborts if the plan contains a full scan of the target table
+	 * @param failOnTargetFullScan
+	 */
+	public void setFailOnTargetFullScan(boolean failOnTargetFullScan) {
+		this.failOnTargetFullScan = failOnTargetFullScan;
+	}
+
+	public boolean isCollectSessionStatistics() {
+		return collectSessionStatistics;
+	}
+
+	/**
+	 * Reads redo and undo size from V$MYSTAT before and after the merge.
+	 * Needs select privileges on V$MYSTAT and V$STATNAME, without them the values stay null.
+	 * @param collectSessionStatistics
+	 */
+	public void setCollectSessionStatistics(boolean collectSessionStatistics) {
+		this.collectSessionStatistics = collectSessionStatistics;
+	}
+
+	public boolean isCountChanges() {
+		return countChanges;
+	}
+
+	/**
+	 * Counts the rows to insert, update and delete with an additional query before the merge.
+	 * The query reads the source and joins the target, the time is available as MergeMetrics.getCountNanos().
+	 * @param countChanges
+	 */
+	public void setCountChanges(boolean countChanges) {
+		this.countChanges = countChanges;
+	}
+
+	public StagingMode getStagingMode() {
+		return stagingMode;
+	}
+
+	/**
+	 * Loads the source select into a staging table before the merge. 
+	 * Useful if the source select is expensive and Oracle evaluates it badly within the merge plan. 
+	 * Needs commit because the staging table is loaded with a direct path insert.
+	 * @param stagingMode
+	 */
+	public void setStagingMode(StagingMode stagingMode) {
+		if (stagingMode == null) {
+			this.stagingMode = StagingMode.NONE;
+		} else {
+			this.stagingMode = stagingMode;
+		}
+	}
+
+	public void setStagingMode(String stagingMode) {
+		this.stagingMode = StagingMode.parse(stagingMode);
+	}
+
+	/**
+	 * Concurrent merges with NOLOGGING staging tables need different staging tables
+	 * @param stagingTableName [schema.]table, null means STG$_ + target table name + hash (+ SID for a NOLOGGING table)
+	 */
+	public void setStagingTableName(String stagingTableName) {
+		if (stagingTableName != null && stagingTableName.trim().isEmpty() == false) {
+			this.stagingTableName = stagingTableName.trim().toUpperCase();
+		} else {
+			this.stagingTableName = null;
+		}
+	}
+
+	/**
+	 * @param createStagingIndex if true the staging table gets an index on the primary key columns of the target table
+	 */
+	public void setCreateStagingIndex(boolean createStagingIndex) {
+		this.createStagingIndex = createStagingIndex;
+	}
+
+	public String getExchangePartitionName() {
+		return exchangePartitionName;
+	}
+
+	/**
+	 * Replaces the content of this partition with the source rows by a partition exchange instead of merging them.
+	 * The source select must provide the complete content of the partition.
+	 * @param exchangePartitionName partition of the range or list partitioned target table
+	 */
+	public void setExchangePartitionName(String exchangePartitionName) {
+		if (exchangePartitionName != null && exchangePartitionName.trim().isEmpty() == false) {
+			exchangePartitionName = exchangePartitionName.trim();
+			if (exchangePartitionName.startsWith("\"")) {
+				this.exchangePartitionName = unquote(exchangePartitionName);
+			} else {
+				this.exchangePartitionName = exchangePartitionName.toUpperCase();
 			}
+		} else {
+			this.exchangePartitionName = null;
+		}
+	}
+
+	/**
+	 * @return the configured exchange table or XCH$_ + the first 25 characters of the target table
+	 */
+	public String getExchangeTableName() {
+		if (exchangeTableName != null) {
+			return exchangeTableName;
+		}
+		String tableName = targetTable != null ? targetTable.getName() : unquote(getTableName(targetTableName));
+		return "XCH$_" + (tableName.length() > 25 ? tableName.substring(0, 25) : tableName);
+	}
+
+	/**
+	 * @param exchangeTableName table created for the exchange and dropped afterwards
+	 */
+	public void setExchangeTableName(String exchangeTableName) {
+		if (exchangeTableName != null && exchangeTableName.trim().isEmpty() == false) {
+			this.exchangeTableName = exchangeTableName.trim();
+		} else {
+			this.exchangeTableName = null;
+		}
+	}
+
+	public String getWatermarkColumn() {
+		return watermarkColumn;
+	}
+
+	/**
+	 * Enables the incremental merge. Only the source rows with a watermark greater than 
+	 * the last successfully merged watermark will be merged.
+	 * To use ORA_ROWSCN select it with an alias in the source select and set the alias here.
+	 * @param watermarkColumn column of the source select e.g. a timestamp or a sequence number
+	 */
+	public void setWatermarkColumn(String watermarkColumn) {
+		if (watermarkColumn != null && watermarkColumn.trim().isEmpty() == false) {
+			this.watermarkColumn = watermarkColumn.trim().toUpperCase();
+		} else {
+			this.watermarkColumn = null;
+		}
+	}
+
+	public void setWatermarkStore(WatermarkStore watermarkStore) {
+		this.watermarkStore = watermarkStore;
+	}
+
+	/**
+	 * Keeps the watermarks in this table, it must exist (see TableWatermarkStore.buildCreateTableStatement)
+	 * @param watermarkTableName
+	 */
+	public void setWatermarkTableName(String watermarkTableName) {
+		if (watermarkTableName != null && watermarkTableName.trim().isEmpty() == false) {
+			this.watermarkTableName = watermarkTableName.trim();
+			this.watermarkStore = null;
+		}
+	}
+
+	/**
+	 * Keeps the watermarks in a local properties file
+	 * @param path
+	 */
+	public void setWatermarkFile(String path) {
+		if (path != null && path.trim().isEmpty() == false) {
+			this.watermarkStore = new FileWatermarkStore(path);
 		}
 	}
 
+	/**
+	 * @param watermarkKey identifies the watermark in the store, required if a watermark column is set
+	 */
+	public void setWatermarkKey(String watermarkKey) {
+		if (watermarkKey != null && watermarkKey.trim().isEmpty() == false) {
+			this.watermarkKey = watermarkKey.trim();
+		} else {
+			this.watermarkKey = null;
+		}
+	}
+
+	/**
+	 * @return the watermark of the last successful merge or null
+	 */
+	public Object getLastWatermark() {
+		return lastWatermark;
+	}
+
+	public boolean isLogErrors() {
+		return logErrors;
+	}
+
+	/**
+	 * Adds a log errors clause to the merge. Rows which violate constraints or cannot be converted 
+	 * are written into the error logging table instead of rolling back the whole merge.
+	 * @param logErrors
+	 */
+	public void setLogErrors(boolean logErrors) {
+		this.logErrors = logErrors;
+	}
+
+	/**
+	 * @param errorLogTableName [schema.]table, null means ERR$_ + target table name
+	 */
+	public void setErrorLogTableName(String errorLogTableName) {
+		if (errorLogTableName != null && errorLogTableName.trim().isEmpty() == false) {
+			this.errorLogTableName = errorLogTableName.trim().toUpperCase();
+		} else {
+			this.errorLogTableName = null;
+		}
+		errorLogTableChecked = false;
+	}
+
+	/**
+	 * @param createErrorLogTable if true a missing error logging table will be created with DBMS_ERRLOG
+	 */
+	public void setCreateErrorLogTable(boolean createErrorLogTable) {
+		this.createErrorLogTable = createErrorLogTable;
+	}
+
+	public Integer getErrorLogRejectLimit() {
+		return errorLogRejectLimit;
+	}
+
+	/**
+	 * The merge fails and will be rolled back if more rows than this are rejected
+	 * @param errorLogRejectLimit null or a negative value means unlimited
+	 */
+	public void setErrorLogRejectLimit(Integer errorLogRejectLimit) {
+		if (errorLogRejectLimit != null && errorLogRejectLimit >= 0) {
+			this.errorLogRejectLimit = errorLogRejectLimit;
+		} else {
+			this.errorLogRejectLimit = null;
+		}
+	}
+
+	/**
+	 * The rejected rows of an execution are found by the tag, it should be unique for every execution
+	 * @param errorLogTag null means a generated tag
+	 */
+	public void setErrorLogTag(String errorLogTag) {
+		if (errorLogTag != null && errorLogTag.trim().isEmpty() == false) {
+			this.errorLogTag = errorLogTag;
+		} else {
+			this.errorLogTag = null;
+		}
+	}
+
+	/**
+	 * @return the tag of the rejected rows of the last execution
+	 */
+	public String getCurrentErrorLogTag() {
+		return currentErrorLogTag;
+	}
+
+	/**
+	 * @param errorLogSampleSize max number of error messages read after the execution
+	 */
+	public void setErrorLogSampleSize(Integer errorLogSampleSize) {
+		if (errorLogSampleSize != null && errorLogSampleSize >= 0) {
+			this.errorLogSampleSize = errorLogSampleSize;
+		}
+	}
+
+	/**
+	 * @return sample of the error messages of the rejected rows of the last execution or null if error logging is not enabled
+	 */
+	public List<String> getLastRejectedErrors() {
+		return lastRejectedErrors;
+	}
+
 	public boolean isDoCommit() {
 		return doCommit;
 	}
@@ -511,11 +3243,306 @@ public class OracleMerge {
 		this.doCommit = doCommit;
 	}
 
+	public boolean isUseMetadataCache() {
+		return useMetadataCache;
+	}
+
+	/**
+	 * Take the target table meta data from the JVM wide cache if available.
+	 * Must be set before init()
+	 * @param useMetadataCache
+	 */
+	public void setUseMetadataCache(boolean useMetadataCache) {
+		this.useMetadataCache = useMetadataCache;
+	}
+	
+	public int getQueryTimeout() {
+		return queryTimeout;
+	}
+
+	/**
+	 * Sets the timeout for the merge statement, the chunk statements and the count query
+	 * @param seconds null or 0 means no timeout
+	 */
+	public void setQueryTimeout(Integer seconds) {
+		if (seconds != null && seconds > 0) {
+			this.queryTimeout = seconds;
+		} else {
+			this.queryTimeout = 0;
+		}
+	}
+	
+	/**
+	 * Adds a listener for the progress events of the merge
+	 * @param l
+	 */
+	public void addDatamodelListener(DatamodelListener l) {
+		if (listeners.contains(l) == false) {
+			listeners.add(l);
+			if (model != null) {
+				model.addDatamodelListener(l);
+			}
+		}
+	}
+	
+	/**
+	 * Sets the way the progress events are delivered, default is the direct call within the firing thread
+	 * @param eventDispatcher
+	 */
+	public void setEventDispatcher(DatamodelEventDispatcher eventDispatcher) {
+		this.eventDispatcher = eventDispatcher;
+		if (model != null) {
+			model.setEventDispatcher(eventDispatcher);
+		}
+	}
+	
+	/**
+	 * Enables the polling of V$SESSION_LONGOPS while the merge is running. 
+	 * The progress is sent as DatamodelEvent.PROGRESS_EVENT to the listeners.
+	 * @param connectionProvider provides the connection for the monitor, the merge connection is busy
+	 * @param intervalMillis time between two polls
+	 */
+	public void setProgressMonitor(ConnectionProvider connectionProvider, long intervalMillis) {
+		this.progressConnectionProvider = connectionProvider;
+		if (intervalMillis > 0) {
+			this.progressIntervalMillis = intervalMillis;
+		}
+	}
+	
+	public boolean isUseMergePlanCache() {
+		return useMergePlanCache;
+	}
+
+	/**
+	 * Keeps the compiled merge statement in a JVM wide cache.
+	 * Merges with the same configuration reuse the statement, the meta data and the prepared statement
+	 * of the connection and only bind the values of the fixed columns.
+	 * @param useMergePlanCache
+	 */
+	public void setUseMergePlanCache(boolean useMergePlanCache) {
+		this.useMergePlanCache = useMergePlanCache;
+	}
+	
+	/**
+	 * @return the compiled plan of the last buildMergeStatement() or null
+	 */
+	public MergePlan getCurrentPlan() {
+		return currentPlan;
+	}
+	
+	/**
+	 * Closes the prepared statements kept for the current plan if the plan is not cached. 
+	 * Cached plans keep their statements for the next merge with the same configuration.
+	 */
+	public void close() {
+		if (currentPlan != null && currentPlan.getFingerprint() == null) {
+			currentPlan.close();
+		}
+		if (connection != null) {
+			// the cached plans must not keep the connection after the job has closed it
+			MergePlanCache.getInstance().releaseConnection(connection);
+		}
+	}
+	
+	/**
+	 * Releases the statements kept for a chunk connection which will be closed
+	 * @param conn
+	 */
+	void releaseConnection(Connection conn) {
+		if (currentPlan != null) {
+			currentPlan.releaseConnection(conn);
+		}
+	}
+	
+	/**
+	 * Sets the time to live of the JVM wide meta data cache
+	 * @param seconds 0 means the entries never expire
+	 */
+	public void setMetadataCacheTimeToLive(Integer seconds) {
+		if (seconds != null) {
+			MetadataCache.getInstance().setTimeToLiveMillis(seconds * 1000l);
+		}
+	}
+	
+	/**
+	 * Sets the max number of tables in the JVM wide meta data cache
+	 * @param maxSize
+	 */
+	public void setMetadataCacheMaxSize(Integer maxSize) {
+		if (maxSize != null && maxSize > 0) {
+			MetadataCache.getInstance().setMaxSize(maxSize);
+		}
+	}
+	
+	/**
+	 * Removes the target table from the JVM wide meta data cache 
+	 * @throws Exception
+	 */
+	public void invalidateMetadataCache() throws Exception {
+		if (model == null) {
+			throw new IllegalStateException("Data model not initialized, please call init() before");
+		}
+		model.invalidateCachedTable(unquote(getSchemaName(targetTableName)), unquote(getTableName(targetTableName)));
+	}
+
+	public ChunkMode getChunkMode() {
+		return chunkMode;
+	}
+
+	/**
+	 * Splits the source into chunks, each chunk is merged and committed separately.
+	 * Must be set before buildMergeStatement()
+	 * @param chunkMode NONE, ORA_HASH or KEY_RANGE (numeric column only)
+	 */
+	public void setChunkMode(String chunkMode) {
+		this.chunkMode = ChunkMode.parse(chunkMode);
+	}
+
+	public void setChunkMode(ChunkMode chunkMode) {
+		if (chunkMode == null) {
+			chunkMode = ChunkMode.NONE;
+		}
+		this.chunkMode = chunkMode;
+	}
+
+	public String getChunkColumn() {
+		return chunkColumn;
+	}
+
+	/**
+	 * @param chunkColumn column of the source select used to split the source
+	 */
+	public void setChunkColumn(String chunkColumn) {
+		if (chunkColumn != null && chunkColumn.trim().isEmpty() == false) {
+			this.chunkColumn = chunkColumn.trim().toUpperCase();
+		}
+	}
+
+	public int getChunkCount() {
+		return chunkCount;
+	}
+
+	public void setChunkCount(Integer chunkCount) {
+		if (chunkCount != null && chunkCount > 0) {
+			this.chunkCount = chunkCount;
+		}
+	}
+
+	/**
+	 * Restricts the chunk mode PARTITION to the given partitions.
+	 * Source rows of other partitions will not be merged.
+	 * @param partitionNames comma separated list of partition names
+	 */
+	public void setChunkPartitions(String partitionNames) {
+		chunkPartitionNames.clear();
+		if (partitionNames != null && partitionNames.trim().isEmpty() == false) {
+			for (String name : partitionNames.split(",")) {
+				name = name.trim();
+				if (name.isEmpty() == false) {
+					if (name.startsWith("\"")) {
+						chunkPartitionNames.add(unquote(name));
+					} else {
+						chunkPartitionNames.add(name.toUpperCase());
+					}
+				}
+			}
+		}
+	}
+
+	public int getChunkThreads() {
+		return chunkThreads;
+	}
+
+	/**
+	 * @param chunkThreads number of chunks running concurrently. 
+	 * More than one thread needs a connection provider
+	 */
+	public void setChunkThreads(Integer chunkThreads) {
+		if (chunkThreads != null && chunkThreads > 0) {
+			this.chunkThreads = chunkThreads;
+		}
+	}
+
+	public void setChunkConnectionProvider(ConnectionProvider chunkConnectionProvider) {
+		this.chunkConnectionProvider = chunkConnectionProvider;
+	}
+	
+	/**
+	 * Creates the connections for the parallel chunks with the DriverManager
+	 * @param url
+	 * @param user
+	 * @param password
+	 */
+	public void setChunkConnectionParameters(final String url, final String user, final String password) {
+		if (url != null && url.trim().isEmpty() == false) {
+			this.chunkConnectionProvider = new ConnectionProvider() {
+				
+				@Override
+				public Connection createConnection() throws SQLException {
+					return DriverManager.getConnection(url, user, password);
+				}
+				
+			};
+		}
+	}
+
+	public String getMergeHint() {
+		return mergeHint;
+	}
+
+	/**
+	 * Optimizer hints for the merge statement e.g. append use_hash(t s) 
+	 * @param mergeHint hint text with or without the comment markers
+	 */
+	public void setMergeHint(String mergeHint) {
+		if (mergeHint != null && mergeHint.trim().isEmpty() == false) {
+			mergeHint = mergeHint.trim();
+			if (mergeHint.startsWith("/*+")) {
+				mergeHint = mergeHint.substring(3);
+			}
+			if (mergeHint.endsWith("*/")) {
+				mergeHint = mergeHint.substring(0, mergeHint.length() - 2);
+			}
+			this.mergeHint = mergeHint.trim();
+		} else {
+			this.mergeHint = null;
+		}
+	}
+
+	public int getParallelDegree() {
+		return parallelDegree;
+	}
+
+	/**
+	 * Adds the hint parallel(t degree) to the merge statement
+	 * @param parallelDegree null or 0 means no parallel hint
+	 */
+	public void setParallelDegree(Integer parallelDegree) {
+		if (parallelDegree != null && parallelDegree > 0) {
+			this.parallelDegree = parallelDegree;
+		} else {
+			this.parallelDegree = 0;
+		}
+	}
+
+	public boolean isEnableParallelDml() {
+		return enableParallelDml;
+	}
+
+	/**
+	 * Enables parallel DML in the session for the execution of the merge.
+	 * Requires the commit option.
+	 * @param enableParallelDml
+	 */
+	public void setEnableParallelDml(boolean enableParallelDml) {
+		this.enableParallelDml = enableParallelDml;
+	}
+
 	public void addKeyword(String keyword) {
 		if (keyword != null && keyword.trim().isEmpty() == false) {
 			keyword = keyword.trim().toUpperCase();
-			if (keywords.contains(keyword) == false) {
-				keywords.add(keyword);
+			if (keywords.add(keyword)) {
+				columnNameCache.clear();
 			}
 		}
 	}
@@ -0,0 +1,247 @@
+package de.jlo.talendcomp.oracle.merge;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+
+/**
+ * Binds a value with the setter matching the type of the target column.
+ * The binder is resolved once when the merge plan is built,
+ * therefore the execution does not need to find out the setter for every value.
+ * @author jan.lolling@gmail.com
+ *
+ */
+public abstract class ParameterBinder {
+
+	private final int sqlType;
+
+	protected ParameterBinder(int sqlType) {
+		this.sqlType = sqlType;
+	}
+
+	/**
+	 * Binds the value or null
+	 * @param ps the statement
+	 * @param paramIndex index of the parameter
+	 * @param value can be null
+	 * @throws SQLException
+	 */
+	public void bind(PreparedStatement ps, int paramIndex, Object value) throws SQLException {
+		if (value == null) {
+			ps.setNull(paramIndex, sqlType);
+		} else {
+			bindValue(ps, paramIndex, value);
+		}
+	}
+
+	protected abstract void bindValue(PreparedStatement ps, int paramIndex, Object value) throws SQLException;
+
+	public int getSqlType() {
+		return sqlType;
+	}
+
+	/**
+	 * Returns the binder for a target column
+	 * @param sqlType java.sql.Types of the target column
+	 * @return the binder
+	 */
+	public static ParameterBinder forSqlType(int sqlType) {
+		switch (sqlType) {
+		case Types.DATE:
+		case Types.TIMESTAMP:
+			// Oracle DATE contains the time, setDate would cut it off
+			return new TimestampBinder(sqlType);
+		case Types.NUMERIC:
+		case Types.DECIMAL:
+		case Types.INTEGER:
+		case Types.BIGINT:
+		case Types.SMALLINT:
+		case Types.TINYINT:
+		case Types.FLOAT:
+			// Oracle FLOAT(n) is a NUMBER with up to 126 binary digits, a double would round it
+			return new DecimalBinder(sqlType);
+		case Types.DOUBLE:
+		case Types.REAL:
+			// BINARY_DOUBLE and BINARY_FLOAT
+			return new DoubleBinder(sqlType);
+		case Types.VARCHAR:
+		case Types.CHAR:
+		case Types.LONGVARCHAR:
+			return new StringBinder(sqlType, false);
+		case Types.NVARCHAR:
+		case Types.NCHAR:
+			return new StringBinder(sqlType, true);
+		case Types.CLOB:
+		case Types.NCLOB:
+			return new ClobBinder(sqlType);
+		default:
+			return new GenericBinder(sqlType);
+		}
+	}
+
+	/**
+	 * @param sqlType used for null values
+	 * @return binder which chooses the setter by the class of the value
+	 */
+	public static ParameterBinder generic(int sqlType) {
+		return new GenericBinder(sqlType);
+	}
+
+	private static final class TimestampBinder extends ParameterBinder {
+
+		private TimestampBinder(int sqlType) {
+			super(sqlType);
+		}
+
+		@Override
+		protected void bindValue(PreparedStatement ps, int paramIndex, Object value) throws SQLException {
+			if (value instanceof Timestamp) {
+				ps.setTimestamp(paramIndex, (Timestamp) value);
+			} else if (value instanceof Date) {
+				ps.setTimestamp(paramIndex, new Timestamp(((Date) value).getTime()));
+			} else {
+				ps.setObject(paramIndex, value);
+			}
+		}
+
+	}
+
+	private static final class DecimalBinder extends ParameterBinder {
+
+		private DecimalBinder(int sqlType) {
+			super(sqlType);
+		}
+
+		@Override
+		protected void bindValue(PreparedStatement ps, int paramIndex, Object value) throws SQLException {
+			if (value instanceof BigDecimal) {
+				ps.setBigDecimal(paramIndex, (BigDecimal) value);
+			} else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+				ps.setLong(paramIndex, ((Number) value).longValue());
+			} else if (value instanceof BigInteger) {
+				ps.setBigDecimal(paramIndex, new BigDecimal((BigInteger) value));
+			} else if (value instanceof Number) {
+				// binary double would need an implicit conversion to NUMBER
+				ps.setBigDecimal(paramIndex, new BigDecimal(value.toString()));
+			} else if (value instanceof Boolean) {
+				ps.setInt(paramIndex, ((Boolean) value) ? 1 : 0);
+			} else if (value instanceof String) {
+				ps.setBigDecimal(paramIndex, new BigDecimal(((String) value).trim()));
+			} else {
+				ps.setObject(paramIndex, value);
+			}
+		}
+
+	}
+
+	private static final class DoubleBinder extends ParameterBinder {
+
+		private DoubleBinder(int sqlType) {
+			super(sqlType);
+		}
+
+		@Override
+		protected void bindValue(PreparedStatement ps, int paramIndex, Object value) throws SQLException {
+			if (value instanceof Number) {
+				ps.setDouble(paramIndex, ((Number) value).doubleValue());
+			} else {
+				ps.setObject(paramIndex, value);
+			}
+		}
+
+	}
+
+	private static final class StringBinder extends ParameterBinder {
+
+		private final boolean national;
+
+		private StringBinder(int sqlType, boolean national) {
+			super(sqlType);
+			this.national = national;
+		}
+
+		@Override
+		protected void bindValue(PreparedStatement ps, int paramIndex, Object value) throws SQLException {
+			String s = null;
+			if (value instanceof String) {
+				s = (String) value;
+			} else if (value instanceof BigDecimal) {
+				s = ((BigDecimal) value).toPlainString();
+			} else if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+				s = value.toString();
+			} else {
+				ps.setObject(paramIndex, value);
+				return;
+			}
+			if (national) {
+				ps.setNString(paramIndex, s);
+			} else {
+				ps.setString(paramIndex, s);
+			}
+		}
+
+	}
+
+	private static final class ClobBinder extends ParameterBinder {
+
+		private ClobBinder(int sqlType) {
+			super(sqlType);
+		}
+
+		@Override
+		protected void bindValue(PreparedStatement ps, int paramIndex, Object value) throws SQLException {
+			if (value instanceof Clob) {
+				ps.setClob(paramIndex, (Clob) value);
+			} else {
+				// setString is limited to 32k in the Oracle driver
+				String s = value.toString();
+				ps.setCharacterStream(paramIndex, new StringReader(s), s.length());
+			}
+		}
+
+	}
+
+	private static final class GenericBinder extends ParameterBinder {
+
+		private GenericBinder(int sqlType) {
+			super(sqlType);
+		}
+
+		@Override
+		protected void bindValue(PreparedStatement ps, int paramIndex, Object value) throws SQLException {
+			if (value instanceof String) {
+				ps.setString(paramIndex, (String) value);
+			} else if (value instanceof Integer) {
+				ps.setInt(paramIndex, (Integer) value);
+			} else if (value instanceof Long) {
+				ps.setLong(paramIndex, (Long) value);
+			} else if (value instanceof BigDecimal) {
+				ps.setBigDecimal(paramIndex, (BigDecimal) value);
+			} else if (value instanceof Short) {
+				ps.setShort(paramIndex, (Short) value);
+			} else if (value instanceof Double) {
+				ps.setDouble(paramIndex, (Double) value);
+			} else if (value instanceof Float) {
+				ps.setFloat(paramIndex, (Float) value);
+			} else if (value instanceof Timestamp) {
+				ps.setTimestamp(paramIndex, (Timestamp) value);
+			} else if (value instanceof java.sql.Date) {
+				ps.setDate(paramIndex, (java.sql.Date) value);
+			} else if (value instanceof Date) {
+				ps.setTimestamp(paramIndex, new Timestamp(((Date) value).getTime()));
+			} else if (value instanceof Boolean) {
+				ps.setBoolean(paramIndex, (Boolean) value);
+			} else {
+				ps.setObject(paramIndex, value);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,170 @@
+package de.jlo.talendcomp.oracle.merge;
+
+/**
+ * One operation of an execution plan taken from the PLAN_TABLE
+ * @author jan.lolling@gmail.com
+ *
+ */
+public class PlanStep {
+	
+	private int id;
+	private Integer parentId;
+	private int depth;
+	private String operation;
+	private String options;
+	private String objectOwner;
+	private String objectName;
+	private Long cost;
+	private Long cardinality;
+	private Long bytes;
+	private String distribution;
+	private String partitionStart;
+	private String partitionStop;
+
+	public int getId() {
+		return id;
+	}
+
+	void setId(int id) {
+		this.id = id;
+	}
+
+	public Integer getParentId() {
+		return parentId;
+	}
+
+	void setParentId(Integer parentId) {
+		this.parentId = parentId;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	void setDepth(int depth) {
+		this.depth = depth;
+	}
+
+	public String getOperation() {
+		return operation;
+	}
+
+	void setOperation(String operation) {
+		this.operation = operation;
+	}
+
+	public String getOptions() {
+		return options;
+	}
+
+	void setOptions(String options) {
+		this.options = options;
+	}
+
+	public String getObjectOwner() {
+		return objectOwner;
+	}
+
+	void setObjectOwner(String objectOwner) {
+		this.objectOwner = objectOwner;
+	}
+
+	public String getObjectName() {
+		return objectName;
+	}
+
+	void setObjectName(String objectName) {
+		this.objectName = objectName;
+	}
+
+	public Long getCost() {
+		return cost;
+	}
+
+	void setCost(Long cost) {
+		this.cost = cost;
+	}
+
+	public Long getCardinality() {
+		return cardinality;
+	}
+
+	void setCardinality(Long cardinality) {
+		this.cardinality = cardinality;
+	}
+
+	public Long getBytes() {
+		return bytes;
+	}
+
+	void setBytes(Long bytes) {
+		this.bytes = bytes;
+	}
+
+	/**
+	 * @return the parallel distribution method e.g. HASH, BROADCAST or null if serial
+	 */
+	public String getDistribution() {
+		return distribution;
+	}
+
+	void setDistribution(String distribution) {
+		this.distribution = distribution;
+	}
+
+	public String getPartitionStart() {
+		return partitionStart;
+	}
+
+	void setPartitionStart(String partitionStart) {
+		this.partitionStart = partitionStart;
+	}
+
+	public String getPartitionStop() {
+		return partitionStop;
+	}
+
+	void setPartitionStop(String partitionStop) {
+		this.partitionStop = partitionStop;
+	}
+	
+	/**
+	 * @return true if the operation reads the whole table
+	 */
+	public boolean isFullTableScan() {
+		return "TABLE ACCESS".equals(operation) && options != null && options.endsWith("FULL");
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < depth; i++) {
+			sb.append("  ");
+		}
+		sb.append(operation);
+		if (options != null) {
+			sb.append(" ");
+			sb.append(options);
+		}
+		if (objectName != null) {
+			sb.append(" ");
+			if (objectOwner != null) {
+				sb.append(objectOwner);
+				sb.append(".");
+			}
+			sb.append(objectName);
+		}
+		sb.append(" cost=");
+		sb.append(cost);
+		sb.append(" rows=");
+		sb.append(cardinality);
+		sb.append(" bytes=");
+		sb.append(bytes);
+		if (distribution != null) {
+			sb.append(" distribution=");
+			sb.append(distribution);
+		}
+		return sb.toString();
+	}
+
+}
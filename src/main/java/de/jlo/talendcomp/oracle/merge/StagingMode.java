@@ -0,0 +1,33 @@
+package de.jlo.talendcomp.oracle.merge;
+
+/**
+ * Defines if the source select is loaded into a staging table before the merge
+ * @author jan.lolling@gmail.com
+ *
+ */
+public enum StagingMode {
+	
+	/**
+	 * the merge reads the source select directly
+	 */
+	NONE,
+	
+	/**
+	 * the source is loaded into a global temporary table (on commit preserve rows).
+	 * The table is created if missing, kept for the next merge and only truncated.
+	 */
+	GLOBAL_TEMPORARY,
+	
+	/**
+	 * the source is loaded into a NOLOGGING table which is dropped after the merge
+	 */
+	NOLOGGING_TABLE;
+	
+	public static StagingMode parse(String mode) {
+		if (mode == null || mode.trim().isEmpty()) {
+			return NONE;
+		}
+		return valueOf(mode.trim().toUpperCase());
+	}
+
+}
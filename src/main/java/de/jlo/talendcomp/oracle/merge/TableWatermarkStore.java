@@ -0,0 +1,131 @@
+package de.jlo.talendcomp.oracle.merge;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/**
+ * Keeps the watermarks in a database table. The table must exist, it is not created because DDL would commit the transaction.
+ * The write does not commit, the owner of the transaction has to commit it.
+ * @author jan.lolling@gmail.com
+ *
+ */
+public class TableWatermarkStore implements WatermarkStore {
+
+	private static final int ORA_TABLE_NOT_EXISTS = 942;
+	private final Connection connection;
+	private final String tableName;
+	private boolean tableChecked = false;
+
+	/**
+	 * @param connection
+	 * @param tableName table with the columns WATERMARK_KEY, NUMBER_VALUE, TIMESTAMP_VALUE, STRING_VALUE and CHANGED_AT
+	 */
+	public TableWatermarkStore(Connection connection, String tableName) {
+		if (connection == null) {
+			throw new IllegalArgumentException("connection cannot be null");
+		}
+		if (tableName == null || tableName.trim().isEmpty()) {
+			throw new IllegalArgumentException("tableName cannot be null or empty");
+		}
+		this.connection = connection;
+		this.tableName = tableName.trim();
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	@Override
+	public Object read(String key) throws Exception {
+		checkTable();
+		PreparedStatement ps = connection.prepareStatement("select NUMBER_VALUE, TIMESTAMP_VALUE, STRING_VALUE from " + tableName + " where WATERMARK_KEY = ?");
+		try {
+			ps.setString(1, key);
+			ResultSet rs = ps.executeQuery();
+			Object value = null;
+			if (rs.next()) {
+				value = rs.getBigDecimal(1);
+				if (value == null) {
+					value = rs.getTimestamp(2);
+				}
+				if (value == null) {
+					value = rs.getString(3);
+				}
+			}
+			rs.close();
+			return value;
+		} finally {
+			ps.close();
+		}
+	}
+
+	@Override
+	public void write(String key, Object value) throws Exception {
+		checkTable();
+		PreparedStatement ps = connection.prepareStatement(
+				"merge into " + tableName + " t\n"
+				+ "using (select ? as WATERMARK_KEY, ? as NUMBER_VALUE, ? as TIMESTAMP_VALUE, ? as STRING_VALUE from dual) s\n"
+				+ "on (t.WATERMARK_KEY = s.WATERMARK_KEY)\n"
+				+ "when matched then update set t.NUMBER_VALUE = s.NUMBER_VALUE, t.TIMESTAMP_VALUE = s.TIMESTAMP_VALUE, t.STRING_VALUE = s.STRING_VALUE, t.CHANGED_AT = sysdate\n"
+				+ "when not matched then insert (WATERMARK_KEY, NUMBER_VALUE, TIMESTAMP_VALUE, STRING_VALUE, CHANGED_AT) values (s.WATERMARK_KEY, s.NUMBER_VALUE, s.TIMESTAMP_VALUE, s.STRING_VALUE, sysdate)");
+		try {
+			ps.setString(1, key);
+			if (value instanceof BigDecimal) {
+				ps.setBigDecimal(2, (BigDecimal) value);
+			} else {
+				ps.setNull(2, Types.NUMERIC);
+			}
+			if (value instanceof Timestamp) {
+				ps.setTimestamp(3, (Timestamp) value);
+			} else {
+				ps.setNull(3, Types.TIMESTAMP);
+			}
+			if (value instanceof String) {
+				ps.setString(4, (String) value);
+			} else {
+				ps.setNull(4, Types.VARCHAR);
+			}
+			ps.executeUpdate();
+		} finally {
+			ps.close();
+		}
+	}
+
+	/**
+	 * @param tableName
+	 * @return the statement to create the watermark table
+	 */
+	public static String buildCreateTableStatement(String tableName) {
+		return "create table " + tableName + " (\n"
+				+ "  WATERMARK_KEY varchar2(400) not null primary key,\n"
+				+ "  NUMBER_VALUE number,\n"
+				+ "  TIMESTAMP_VALUE timestamp(9),\n"
+				+ "  STRING_VALUE varchar2(4000),\n"
+				+ "  CHANGED_AT date)";
+	}
+
+	private void checkTable() throws Exception {
+		if (tableChecked) {
+			return;
+		}
+		Statement stat = connection.createStatement();
+		try {
+			stat.executeQuery("select WATERMARK_KEY from " + tableName + " where 1 = 0").close();
+		} catch (SQLException e) {
+			if (e.getErrorCode() != ORA_TABLE_NOT_EXISTS) {
+				throw e;
+			}
+			throw new Exception("Watermark table: " + tableName + " does not exist. Please create it with:\n" + buildCreateTableStatement(tableName), e);
+		} finally {
+			stat.close();
+		}
+		tableChecked = true;
+	}
+
+}
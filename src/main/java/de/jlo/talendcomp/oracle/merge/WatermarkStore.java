@@ -0,0 +1,27 @@
+package de.jlo.talendcomp.oracle.merge;
+
+/**
+ * Persists the high water mark of an incremental merge.
+ * The values are BigDecimal, Timestamp or String depending on the type of the watermark column.
+ * @author jan.lolling@gmail.com
+ *
+ */
+public interface WatermarkStore {
+
+	/**
+	 * Reads the last successfully merged watermark
+	 * @param key identifies the target and source of the merge
+	 * @return the watermark or null if the merge never run
+	 * @throws Exception
+	 */
+	Object read(String key) throws Exception;
+
+	/**
+	 * Writes the watermark durably. Will be called after the merge is committed.
+	 * @param key identifies the target and source of the merge
+	 * @param value the max value of the watermark column of the merged rows
+	 * @throws Exception
+	 */
+	void write(String key, Object value) throws Exception;
+
+}
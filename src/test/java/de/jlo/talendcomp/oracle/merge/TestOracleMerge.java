@@ -2,28 +2,48 @@ package de.jlo.talendcomp.oracle.merge;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.Properties;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import de.jlo.datamodel.SQLDataModel;
 import de.jlo.datamodel.SQLTable;
 
 public class TestOracleMerge {
 	
 	private Connection connection = null;
+	private Properties props = null;
 	private static final String configFile = "/Data/Talend/testdata/oracle_test_db.properties";
 	
 	@Before
 	public void connect() throws Exception {
-		Properties props = new Properties();
+		props = new Properties();
 		props.load(new BufferedInputStream(new FileInputStream(new File(configFile))));
 		Class.forName(props.getProperty("DRIVER_CLASS"));
 		connection = DriverManager.getConnection(props.getProperty("URL"), props.getProperty("USER"), props.getProperty("PW"));
@@ -436,4 +456,672 @@ public class TestOracleMerge {
 			    + "  values (s.PARTNO,s.DESCRIPTION,s.ATACHAPTER,s.MATERIALCLASS,s.FAACTYPE,s.ADDRESS,s.STORETIME,s.\"WEIGHT\",s.ALERTQTY,s.REORDERLEVEL,s.MAXPURCHQTY,s.MEASUREUNIT,s.TOOL,s.REPAIRABLE,s.\"SIZE\",s.DOCUMENTREF,s.REMARKS,s.DEFAULTSUPPLIER,s.DEFAULTREPAIR,s.MANUFACTURER,s.REORDERMODEL,s.STATUS,s.ATA200CONVERT,s.MATTYPE,s.FIXEDASSET,s.ORIGIN,s.MAXSHOPVISIT,s.SWRESETCOND,s.SPECIFICATIONS,s.EXTSTATE,s.SAFETYSTOCK,s.PMA,s.SPECIALMEASUREUNIT,s.RESOURCETYPE,s.JOB_INSTANCE_ID,s.FILE_ID,s.MAPPING_ID,s.AMOS_IMPORT_OK)";
 		assertEquals("merge statement wrong", expected, actual);
 	}
+
+	@Test
+	public void testCreateMergeChunkedOraHash() throws Exception {
+		OracleMerge m = new OracleMerge(connection);
+		m.setSourceSelectCode("select * from S_TEST");
+		m.setAllowInsert(true);
+		m.setAllowUpdate(false);
+		m.setAllowDelete(false);
+		m.setFixedColumnValue("JOB_INSTANCE_ID", 99);
+		m.setFixedColumnValue("FILE_ID", null);
+		m.setFixedColumnValue("MAPPING_ID", 2);
+		m.setFixedColumnValue("AMOS_IMPORT_OK", 0);
+		m.setChunkMode("ORA_HASH");
+		m.setChunkColumn("CONCODE");
+		m.setChunkCount(4);
+		m.setTargetTableName("XTEST");
+		m.init();
+		String actual = m.buildMergeStatement();
+		System.out.println(actual);
+		String expected = "merge into XTEST t\n"
+			    + "using (\n"
+			    + "select * from (\n"
+			    + "select * from S_TEST\n"
+			    + ") c\n"
+			    + "where nvl(ora_hash(c.CONCODE, 3), 0) = ?\n"
+			    + ") s\n"
+			    + "on (((t.CONCODE is null and s.CONCODE is null) or (t.CONCODE=s.CONCODE)) and ((t.ACTYPE is null and s.ACTYPE is null) or (t.ACTYPE=s.ACTYPE)))\n"
+			    + "when not matched then\n"
+			    + "  insert (t.CONCODE,t.ACTYPE,t.JOB_INSTANCE_ID,t.FILE_ID,t.MAPPING_ID,t.AMOS_IMPORT_OK)\n"
+			    + "  values (s.CONCODE,s.ACTYPE,?,?,?,?)";
+		assertEquals("merge statement wrong", expected, actual);
+		m.setDoCommit(true);
+		int count = m.execute();
+		assertEquals(4, m.getLastChunks().size());
+		int sum = 0;
+		for (MergeChunk chunk : m.getLastChunks()) {
+			sum = sum + chunk.getCountMerged();
+		}
+		assertEquals(count, sum);
+	}
+
+	@Test
+	public void testCreateMergeWithHints() throws Exception {
+		OracleMerge m = new OracleMerge(connection);
+		m.setSourceSelectCode("select * from S_TEST");
+		m.setAllowInsert(true);
+		m.setAllowUpdate(false);
+		m.setAllowDelete(false);
+		m.setMergeHint("/*+ append use_hash(t s) */");
+		m.setParallelDegree(8);
+		m.setEnableParallelDml(true);
+		m.setTargetTableName("XTEST");
+		m.init();
+		String actual = m.buildMergeStatement();
+		System.out.println(actual);
+		assertTrue(actual.startsWith("merge /*+ append use_hash(t s) parallel(t 8) */ into XTEST t\n"));
+		m.setDoCommit(true);
+		m.execute();
+	}
+
+	@Test
+	public void testCreateMergeUpdateOnlyChangedRows() throws Exception {
+		OracleMerge m = new OracleMerge(connection);
+		m.setAllowInsert(false);
+		m.setAllowUpdate(true);
+		m.addUpdateOnlyColumn("AMOS_IMPORT_OK");
+		m.addUpdateOnlyColumn("REMARKS");
+		m.setUpdateWhereCondition("t.AMOS_IMPORT_OK = 0");
+		m.setUpdateOnlyChangedRows(true);
+		m.setAllowDelete(false);
+		m.setSourceSelectCode("select * from Z_XDHECT");
+		m.setTargetTableName("XDHECT");
+		m.init();
+		String actual = m.buildMergeStatement();
+		System.out.println(actual);
+		String expected = "merge into XDHECT t\n"
+			    + "using (\n"
+			    + "select * from Z_XDHECT\n"
+			    + ") s\n"
+			    + "on (t.DOCNO=s.DOCNO and t.DOCTYPE=s.DOCTYPE and t.REVISION=s.REVISION and t.ISSUEDBY=s.ISSUEDBY)\n"
+			    + "when matched then\n"
+			    + "  update set\n"
+			    + "    t.REMARKS=s.REMARKS,\n"
+			    + "    t.AMOS_IMPORT_OK=s.AMOS_IMPORT_OK\n"
+			    + "  where (t.AMOS_IMPORT_OK = 0)\n"
+			    + "    and (decode(t.REMARKS, s.REMARKS, 0, 1) = 1\n"
+			    + "    or decode(t.AMOS_IMPORT_OK, s.AMOS_IMPORT_OK, 0, 1) = 1)\n";
+		assertEquals("merge statement wrong", expected, actual);
+	}
+
+	@Test
+	public void testCreateMergeUpdateOnlyChangedRowsByHash() throws Exception {
+		OracleMerge m = new OracleMerge(connection);
+		m.setAllowInsert(false);
+		m.setAllowUpdate(true);
+		m.addUpdateOnlyColumn("AMOS_IMPORT_OK");
+		m.addUpdateOnlyColumn("REMARKS");
+		m.setUpdateOnlyChangedRows(true);
+		m.setCompareByHash(true);
+		m.setAllowDelete(false);
+		m.setSourceSelectCode("select * from Z_XDHECT");
+		m.setTargetTableName("XDHECT");
+		m.init();
+		String actual = m.buildMergeStatement();
+		System.out.println(actual);
+		String expected = "merge into XDHECT t\n"
+			    + "using (\n"
+			    + "select * from Z_XDHECT\n"
+			    + ") s\n"
+			    + "on (t.DOCNO=s.DOCNO and t.DOCTYPE=s.DOCTYPE and t.REVISION=s.REVISION and t.ISSUEDBY=s.ISSUEDBY)\n"
+			    + "when matched then\n"
+			    + "  update set\n"
+			    + "    t.REMARKS=s.REMARKS,\n"
+			    + "    t.AMOS_IMPORT_OK=s.AMOS_IMPORT_OK\n"
+			    + "  where (standard_hash(chr(31) || t.REMARKS || chr(31) || to_char(t.AMOS_IMPORT_OK, 'TM9'), 'MD5') <> standard_hash(chr(31) || s.REMARKS || chr(31) || to_char(s.AMOS_IMPORT_OK, 'TM9'), 'MD5'))\n";
+		assertEquals("merge statement wrong", expected, actual);
+	}
+
+	@Test
+	public void testCreateMergeNullSafeJoinModes() throws Exception {
+		OracleMerge m = new OracleMerge(connection);
+		m.setSourceSelectCode("select * from S_TEST");
+		m.setAllowInsert(true);
+		m.setAllowUpdate(false);
+		m.setAllowDelete(false);
+		m.setFixedColumnValue("JOB_INSTANCE_ID", 99);
+		m.setFixedColumnValue("FILE_ID", null);
+		m.setFixedColumnValue("MAPPING_ID", 2);
+		m.setFixedColumnValue("AMOS_IMPORT_OK", 0);
+		m.setNullSafeJoinMode("NVL_SENTINEL");
+		m.setNullSafeJoinMode("ACTYPE", "SYS_OP_MAP_NONNULL");
+		m.setTargetTableName("XTEST");
+		m.init();
+		String actual = m.buildMergeStatement();
+		System.out.println(actual);
+		String expected = "merge into XTEST t\n"
+			    + "using (\n"
+			    + "select * from S_TEST\n"
+			    + ") s\n"
+			    + "on (nvl(t.CONCODE, chr(0))=nvl(s.CONCODE, chr(0)) and sys_op_map_nonnull(t.ACTYPE)=sys_op_map_nonnull(s.ACTYPE))\n"
+			    + "when not matched then\n"
+			    + "  insert (t.CONCODE,t.ACTYPE,t.JOB_INSTANCE_ID,t.FILE_ID,t.MAPPING_ID,t.AMOS_IMPORT_OK)\n"
+			    + "  values (s.CONCODE,s.ACTYPE,?,?,?,?)";
+		assertEquals("merge statement wrong", expected, actual);
+	}
+
+	@Test
+	public void testReplaceParameterMarkers() {
+		String sql = "select '?' as x, \"A?\" from t /* ? */ where a = ? -- ?\nand b = ?";
+		String expected = "select '?' as x, \"A?\" from t /* ? */ where a = :p1 -- ?\nand b = :p2";
+		assertEquals(expected, OracleMerge.replaceParameterMarkers(sql));
+	}
+
+	@Test
+	public void testReplaceNamedParameters() {
+		String sql = "select to_char(d, 'HH24:MI') as x from t /* :c */ where a = :load_date -- :b\nand b = :Tenant_Id and c = :LOAD_DATE";
+		String expected = "select to_char(d, 'HH24:MI') as x from t /* :c */ where a = ? -- :b\nand b = ? and c = ?";
+		List<String> names = new ArrayList<String>();
+		assertEquals(expected, OracleMerge.replaceNamedParameters(sql, names));
+		assertEquals(Arrays.asList("LOAD_DATE", "TENANT_ID", "LOAD_DATE"), names);
+	}
+
+	@Test
+	public void testExplain() throws Exception {
+		OracleMerge m = new OracleMerge(connection);
+		m.setSourceSelectCode("select * from S_TEST");
+		m.setAllowInsert(true);
+		m.setAllowUpdate(false);
+		m.setFixedColumnValue("JOB_INSTANCE_ID", 99);
+		m.setTargetTableName("XTEST");
+		m.init();
+		m.buildMergeStatement();
+		ExplainPlan plan = m.explain();
+		System.out.println(plan);
+		assertTrue(plan.getSteps().size() > 0);
+		assertEquals("MERGE STATEMENT", plan.getSteps().get(0).getOperation());
+	}
+
+	@Test
+	public void testMetrics() throws Exception {
+		OracleMerge m = new OracleMerge(connection);
+		m.setSourceSelectCode("select * from S_TEST");
+		m.setAllowInsert(true);
+		m.setAllowUpdate(false);
+		m.setFixedColumnValue("JOB_INSTANCE_ID", 99);
+		m.setCollectSessionStatistics(true);
+		m.setTargetTableName("XTEST");
+		m.init();
+		m.buildMergeStatement();
+		m.setDoCommit(true);
+		int count = m.execute();
+		MergeMetrics metrics = m.getMetrics();
+		System.out.println(metrics);
+		assertTrue(metrics.getMetadataRoundTrips() > 0);
+		assertTrue(metrics.getElapsedNanos() >= metrics.getExecuteNanos());
+		assertEquals(count, metrics.getCountInserted().intValue());
+	}
+
+	@Test
+	public void testCountChanges() throws Exception {
+		// the overhead of the count is measured by CountChangesBenchmark
+		OracleMerge m = createMergeForCountTest(true);
+		int count = m.execute();
+		MergeMetrics metrics = m.getMetrics();
+		assertTrue(metrics.getCountNanos() > 0);
+		assertEquals("inserted + updated must match merged count", count, metrics.getCountInserted() + metrics.getCountUpdated());
+		assertEquals(0, metrics.getCountDeleted().intValue());
+	}
+	
+	private OracleMerge createMergeForCountTest(boolean countChanges) throws Exception {
+		OracleMerge m = new OracleMerge(connection);
+		m.setSourceSelectCode("select * from S_TEST");
+		m.setAllowInsert(true);
+		m.setAllowUpdate(true);
+		m.setFixedColumnValue("JOB_INSTANCE_ID", 99);
+		m.setCountChanges(countChanges);
+		m.setTargetTableName("XTEST");
+		m.init();
+		m.buildMergeStatement();
+		m.setDoCommit(true);
+		return m;
+	}
+
+	@Test
+	public void testMergePlanCache() throws Exception {
+		MergePlanCache.getInstance().invalidateAll();
+		OracleMerge m1 = createMergeForPlanCacheTest(98);
+		assertTrue(m1.getMetrics().isPlanCacheHit() == false);
+		m1.execute();
+		OracleMerge m2 = createMergeForPlanCacheTest(99);
+		assertTrue(m2.getMetrics().isPlanCacheHit());
+		assertEquals(0, m2.getMetrics().getMetadataRoundTrips());
+		assertTrue(m1.getCurrentPlan() == m2.getCurrentPlan());
+		// the cached plan must not share the table and its data model between the merges
+		assertTrue(m1.getTargetSQLTable() != m2.getTargetSQLTable());
+		assertEquals(m1.getTargetSQLTable().getPrimaryKeyFieldNames(), m2.getTargetSQLTable().getPrimaryKeyFieldNames());
+		m2.execute();
+		// rebind only
+		m2.setFixedColumnValue("JOB_INSTANCE_ID", 100);
+		m2.execute();
+		assertEquals(1, m2.getCurrentPlan().getCountPrepared());
+		MergePlanCache.getInstance().invalidateAll();
+	}
+	
+	private OracleMerge createMergeForPlanCacheTest(int jobInstanceId) throws Exception {
+		OracleMerge m = new OracleMerge(connection);
+		m.setSourceSelectCode("select * from S_TEST");
+		m.setAllowInsert(true);
+		m.setAllowUpdate(true);
+		m.setFixedColumnValue("JOB_INSTANCE_ID", jobInstanceId);
+		m.setUseMergePlanCache(true);
+		m.setTargetTableName("XTEST");
+		m.init();
+		m.buildMergeStatement();
+		m.setDoCommit(true);
+		return m;
+	}
+
+	@Test
+	public void testFixedColumnBinders() throws Exception {
+		OracleMerge m = createMergeForCountTest(false);
+		for (MergeParameter p : m.getCurrentPlan().getParameters()) {
+			assertEquals(MergeParameter.Kind.FIXED_COLUMN, p.getKind());
+			assertEquals("JOB_INSTANCE_ID", p.getName());
+			// resolved from the target column and not from the value
+			assertEquals(m.getTargetSQLTable().getField("JOB_INSTANCE_ID").getType(), p.getBinder().getSqlType());
+		}
+		m.execute();
+	}
+
+	@Test
+	public void testExecuteAsync() throws Exception {
+		OracleMerge m = createMergeForCountTest(false);
+		m.setQueryTimeout(60);
+		CompletableFuture<Integer> future = m.executeAsync();
+		int count = future.get(60, TimeUnit.SECONDS);
+		assertEquals(count, m.getMetrics().getCountMerged());
+		assertTrue("nothing to cancel after the merge", m.cancel() == false);
+	}
+
+
+	@Test
+	public void testConcurrentResolveTable() throws Exception {
+		final SQLDataModel shared = new SQLDataModel(connection);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<SQLTable>> futures = new ArrayList<Future<SQLTable>>();
+		for (int i = 0; i < 8; i++) {
+			futures.add(executor.submit(new Callable<SQLTable>() {
+
+				@Override
+				public SQLTable call() throws Exception {
+					SQLTable table = shared.resolveTable(null, "XTEST");
+					table.getFieldCount();
+					return table;
+				}
+
+			}));
+		}
+		for (Future<SQLTable> f : futures) {
+			// concurrent loads of the same table must not duplicate columns
+			SQLTable table = f.get(60, TimeUnit.SECONDS);
+			assertEquals(6, table.getFieldCount());
+			assertEquals(2, table.getPrimaryKeyFieldNames().size());
+		}
+		executor.shutdown();
+	}
+
+
+	@Test
+	public void testLogErrors() throws Exception {
+		OracleMerge m = new OracleMerge(connection);
+		m.setSourceSelectCode("select * from S_TEST");
+		m.setFixedColumnValue("JOB_INSTANCE_ID", 99);
+		m.setLogErrors(true);
+		m.setErrorLogRejectLimit(100);
+		m.setTargetTableName("XTEST");
+		m.init();
+		String sql = m.buildMergeStatement();
+		System.out.println(sql);
+		assertTrue(sql.endsWith("log errors into " + m.getErrorLogTableName() + " (?) reject limit 100"));
+		List<MergeParameter> params = m.getCurrentPlan().getParameters();
+		assertEquals(MergeParameter.Kind.ERROR_LOG_TAG, params.get(params.size() - 1).getKind());
+		m.execute();
+		assertEquals(0, m.getMetrics().getCountRejected().intValue());
+		assertTrue(m.getLastRejectedErrors().isEmpty());
+	}
+
+
+	@Test
+	public void testStagingNologgingTable() throws Exception {
+		OracleMerge m = createMergeForCountTest(false);
+		m.setStagingMode(StagingMode.NOLOGGING_TABLE);
+		String sql = m.buildMergeStatement();
+		assertTrue(sql.contains("select * from " + m.getStagingTableName()));
+		int count = m.execute();
+		System.out.println(m.getMetrics());
+		assertTrue(m.getMetrics().getCountStaged() >= count);
+	}
+
+
+	@Test
+	public void testPartitionChunks() throws Exception {
+		Statement stat = connection.createStatement();
+		stat.execute("create table XTEST_PART (ID number primary key, LOAD_DATE date not null, VALUE varchar2(100))\n"
+				+ "partition by range (LOAD_DATE) (\n"
+				+ "partition P2020 values less than (date '2021-01-01'),\n"
+				+ "partition P2021 values less than (date '2022-01-01'))");
+		try {
+			OracleMerge m = new OracleMerge(connection);
+			m.setSourceSelectCode("select level as ID, add_months(date '2020-06-01', level * 6) as LOAD_DATE, 'v' || level as VALUE from dual connect by level <= 3");
+			m.setTargetTableName("XTEST_PART");
+			m.setChunkMode(ChunkMode.PARTITION);
+			m.init();
+			m.buildMergeStatement();
+			try {
+				m.execute();
+				fail("The row of 2022 does not fit into a partition");
+			} catch (Exception e) {
+				// expected ORA-14400
+			}
+			m.setChunkPartitions("p2020, P2021");
+			m.buildMergeStatement();
+			int count = m.execute();
+			assertEquals(2, count);
+			List<MergeChunk> chunks = m.getLastChunks();
+			assertEquals(2, chunks.size());
+			assertEquals("P2020", chunks.get(0).getPartitionName());
+			assertEquals(1, chunks.get(0).getCountMerged());
+		} finally {
+			stat.execute("drop table XTEST_PART purge");
+			stat.close();
+		}
+	}
+
+
+	@Test
+	public void testIncrementalMergeByRowScn() throws Exception {
+		File stateFile = File.createTempFile("watermarks", ".properties");
+		stateFile.delete();
+		OracleMerge m = createMergeForCountTest(false);
+		m.setSourceSelectCode("select s.*, ora_rowscn as ROW_SCN from S_TEST s");
+		m.setWatermarkColumn("row_scn");
+		m.setWatermarkKey("XTEST:testIncrementalMergeByRowScn");
+		m.setWatermarkFile(stateFile.getAbsolutePath());
+		m.buildMergeStatement();
+		m.execute();
+		Object watermark = m.getLastWatermark();
+		assertTrue(watermark != null);
+		assertEquals(watermark, new FileWatermarkStore(stateFile.getAbsolutePath()).read(m.getWatermarkKey()));
+		// the statement gets the lower bound and nothing has changed since the first run
+		assertEquals(0, m.execute());
+		assertTrue(m.getCurrentPlan().getSql().contains("w.ROW_SCN > ?"));
+		stateFile.delete();
+	}
+
+
+	@Test
+	public void testExchangePartition() throws Exception {
+		Statement stat = connection.createStatement();
+		stat.execute("create table XTEST_EXCH (ID number not null, LOAD_DATE date not null, VALUE varchar2(100))\n"
+				+ "partition by range (LOAD_DATE) (\n"
+				+ "partition P2020 values less than (date '2021-01-01'),\n"
+				+ "partition P2021 values less than (date '2022-01-01'))");
+		stat.execute("create unique index XTEST_EXCH_PK on XTEST_EXCH (ID, LOAD_DATE) local");
+		stat.execute("insert into XTEST_EXCH values (99, date '2020-02-01', 'old')");
+		try {
+			OracleMerge m = new OracleMerge(connection);
+			// the row of 2021 does not belong into the partition and will be filtered
+			m.setSourceSelectCode("select level as ID, add_months(date '2020-01-01', level * 3) as LOAD_DATE, 'v' || level as VALUE from dual connect by level <= 4");
+			m.setTargetTableName("XTEST_EXCH");
+			m.setExchangePartitionName("p2020");
+			m.init();
+			m.buildMergeStatement();
+			assertEquals(3, m.execute());
+			ResultSet rs = stat.executeQuery("select count(*), min(ID) from XTEST_EXCH partition (P2020)");
+			rs.next();
+			assertEquals(3, rs.getInt(1));
+			assertEquals(1, rs.getInt(2));
+			rs.close();
+		} finally {
+			stat.execute("drop table XTEST_EXCH purge");
+			stat.close();
+		}
+	}
+
+
+	@Test
+	public void testExplainWithParallelDml() throws Exception {
+		OracleMerge m = createMergeForCountTest(false);
+		m.setExplainMaxCost(Long.MAX_VALUE);
+		m.setEnableParallelDml(true);
+		int count = m.execute();
+		assertTrue(m.getLastExplainPlan() != null);
+		assertEquals(count, m.getMetrics().getCountMerged());
+	}
+
+
+	@Test
+	public void testConcurrentReloadColumns() throws Exception {
+		final SQLDataModel shared = new SQLDataModel(connection);
+		final SQLTable table = shared.resolveTable(null, "XTEST");
+		final int expected = table.getFieldCount();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		Future<?> reloader = executor.submit(new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				for (int i = 0; i < 20; i++) {
+					table.loadColumns();
+				}
+				return null;
+			}
+
+		});
+		List<Future<Integer>> readers = new ArrayList<Future<Integer>>();
+		for (int i = 0; i < 3; i++) {
+			readers.add(executor.submit(new Callable<Integer>() {
+
+				@Override
+				public Integer call() throws Exception {
+					int minCount = Integer.MAX_VALUE;
+					for (int n = 0; n < 10000; n++) {
+						minCount = Math.min(minCount, table.getFieldNames().size());
+					}
+					return minCount;
+				}
+
+			}));
+		}
+		reloader.get(60, TimeUnit.SECONDS);
+		for (Future<Integer> f : readers) {
+			// a reload must never expose an empty or half filled field list
+			assertEquals(expected, f.get(60, TimeUnit.SECONDS).intValue());
+		}
+		executor.shutdown();
+	}
+
+
+	@Test
+	public void testPlanFingerprintSeparatesSettings() throws Exception {
+		OracleMerge m1 = new OracleMerge(connection);
+		m1.setTargetTableName("XTEST");
+		m1.setSourceSelectCode("select * from S_TEST");
+		m1.setMergeHint("x1");
+		m1.setParallelDegree(2);
+		OracleMerge m2 = new OracleMerge(connection);
+		m2.setTargetTableName("XTEST");
+		m2.setSourceSelectCode("select * from S_TEST");
+		m2.setMergeHint("x");
+		m2.setParallelDegree(12);
+		assertTrue(m1.buildPlanFingerprint().equals(m2.buildPlanFingerprint()) == false);
+	}
+
+
+	@Test
+	public void testMergePlanCacheReleasesConnection() throws Exception {
+		MergePlanCache.getInstance().invalidateAll();
+		OracleMerge m = createMergeForPlanCacheTest(98);
+		m.execute();
+		MergePlan plan = m.getCurrentPlan();
+		assertEquals(1, plan.getCountKeptStatements());
+		m.close();
+		assertEquals("closed job connection must not be kept by the cached plan", 0, plan.getCountKeptStatements());
+		MergePlanCache.getInstance().invalidateAll();
+	}
+
+
+	@Test
+	public void testStagingWithAutoCommit() throws Exception {
+		connection.setAutoCommit(true);
+		OracleMerge m = createMergeForCountTest(false);
+		m.setStagingMode(StagingMode.NOLOGGING_TABLE);
+		m.buildMergeStatement();
+		int count = m.execute();
+		assertTrue(m.getMetrics().getCountStaged() >= count);
+	}
+
+
+	@Test
+	public void testExplainKeepsCallersTransaction() throws Exception {
+		Statement stat = connection.createStatement();
+		try {
+			stat.execute("drop table XTEST_TX purge");
+		} catch (Exception e) {
+			// does not exist
+		}
+		stat.execute("create table XTEST_TX (ID number)");
+		OracleMerge m = createMergeForCountTest(false);
+		connection.setAutoCommit(false);
+		stat.executeUpdate("insert into XTEST_TX (ID) values (1)");
+		m.explain();
+		ResultSet rs = stat.executeQuery("select count(*) from XTEST_TX");
+		rs.next();
+		assertEquals("uncommitted row of the caller must survive the explain", 1, rs.getInt(1));
+		rs.close();
+		connection.rollback();
+		stat.execute("drop table XTEST_TX purge");
+		stat.close();
+	}
+
+
+	@Test
+	public void testChunksWithNullKeys() throws Exception {
+		Statement stat = connection.createStatement();
+		stat.execute("create table XTEST_CHUNK (ID number not null primary key, CHUNK_KEY number, VALUE varchar2(100))");
+		try {
+			for (ChunkMode mode : new ChunkMode[] {ChunkMode.ORA_HASH, ChunkMode.KEY_RANGE}) {
+				stat.execute("truncate table XTEST_CHUNK");
+				OracleMerge m = new OracleMerge(connection);
+				// every third row has no chunk key
+				m.setSourceSelectCode("select level as ID, case when mod(level, 3) = 0 then null else level end as CHUNK_KEY, 'v' || level as VALUE from dual connect by level <= 30");
+				m.setAllowInsert(true);
+				m.setAllowUpdate(true);
+				m.setTargetTableName("XTEST_CHUNK");
+				m.setChunkMode(mode);
+				m.setChunkColumn("CHUNK_KEY");
+				m.setChunkCount(4);
+				m.init();
+				m.buildMergeStatement();
+				m.setDoCommit(true);
+				assertEquals("all rows must be merged in mode " + mode, 30, m.execute());
+				ResultSet rs = stat.executeQuery("select count(*) from XTEST_CHUNK where CHUNK_KEY is null");
+				rs.next();
+				assertEquals(10, rs.getInt(1));
+				rs.close();
+			}
+		} finally {
+			stat.execute("drop table XTEST_CHUNK purge");
+			stat.close();
+		}
+	}
+
+
+	@Test
+	public void testStagingTableNames() throws Exception {
+		OracleMerge m = createMergeForCountTest(false);
+		m.setStagingMode(StagingMode.NOLOGGING_TABLE);
+		Connection other = DriverManager.getConnection(props.getProperty("URL"), props.getProperty("USER"), props.getProperty("PW"));
+		try {
+			OracleMerge concurrent = new OracleMerge(other);
+			concurrent.setTargetTableName("XTEST");
+			concurrent.setStagingMode(StagingMode.NOLOGGING_TABLE);
+			concurrent.init();
+			assertTrue("concurrent sessions need different staging tables", m.getStagingTableName().equals(concurrent.getStagingTableName()) == false);
+		} finally {
+			other.close();
+		}
+		m.setStagingMode(StagingMode.GLOBAL_TEMPORARY);
+		String gtt = m.getStagingTableName();
+		assertTrue(gtt.length() <= 30);
+		Statement stat = connection.createStatement();
+		try {
+			stat.execute("drop table " + gtt + " purge");
+		} catch (Exception e) {
+			// does not exist
+		}
+		stat.execute("create global temporary table " + gtt + " (X number) on commit preserve rows");
+		try {
+			m.buildMergeStatement();
+			m.execute();
+			fail("The layout of the existing staging table does not match the source select");
+		} catch (Exception e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("Staging table: " + gtt));
+		} finally {
+			stat.execute("drop table " + gtt + " purge");
+			stat.close();
+		}
+	}
+
+
+	@Test
+	public void testTableWatermarkStoreKeepsTransaction() throws Exception {
+		Statement stat = connection.createStatement();
+		try {
+			stat.execute("drop table XTEST_WATERMARKS purge");
+		} catch (Exception e) {
+			// does not exist
+		}
+		connection.setAutoCommit(false);
+		TableWatermarkStore store = new TableWatermarkStore(connection, "XTEST_WATERMARKS");
+		try {
+			store.read("key");
+			fail("The watermark table must not be created implicitly");
+		} catch (Exception e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("create table XTEST_WATERMARKS"));
+		}
+		stat.execute(TableWatermarkStore.buildCreateTableStatement("XTEST_WATERMARKS"));
+		try {
+			store = new TableWatermarkStore(connection, "XTEST_WATERMARKS");
+			store.write("key", new BigDecimal(42));
+			connection.rollback();
+			assertTrue("write must not commit the transaction", store.read("key") == null);
+		} finally {
+			stat.execute("drop table XTEST_WATERMARKS purge");
+			stat.close();
+		}
+	}
+
+
+	@Test
+	public void testFloatIsBoundAsDecimal() throws Exception {
+		final List<String> calls = new ArrayList<String>();
+		PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {PreparedStatement.class}, new InvocationHandler() {
+			
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				calls.add(method.getName() + ":" + args[1]);
+				return null;
+			}
+			
+		});
+		BigDecimal value = new BigDecimal("1234567890.123456789012345");
+		ParameterBinder.forSqlType(Types.FLOAT).bind(ps, 1, value);
+		ParameterBinder.forSqlType(Types.DOUBLE).bind(ps, 2, 1.5d);
+		assertEquals(Arrays.asList("setBigDecimal:" + value, "setDouble:1.5"), calls);
+	}
+
+
+	@Test
+	public void testResolveTableTwice() throws Exception {
+		SQLDataModel model = new SQLDataModel(connection);
+		SQLTable first = model.resolveTable(null, "XTEST");
+		int roundTrips = model.getMetadataRoundTrips();
+		SQLTable second = model.resolveTable(null, "XTEST");
+		assertTrue("the resolved table must be reused", first == second);
+		assertEquals(roundTrips, model.getMetadataRoundTrips());
+	}
+
 }